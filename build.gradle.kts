@@ -5,6 +5,7 @@ plugins {
   java
   application
   id("com.github.johnrengelman.shadow") version "8.1.1"
+  id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "xyz.tzpro.core"
@@ -26,6 +27,7 @@ val hikariCPVersion = "6.2.1"
 val mysqlConnectorVersion = "8.0.33"
 val valkeyVersion = "5.3.0"
 val log4jVersion = "2.24.3"
+val openjdkJmhVersion = "1.37"
 
 val mainVerticleName = "Zephyr.MainVerticle"
 val launcherClassName = "io.vertx.core.Launcher"
@@ -55,10 +57,15 @@ dependencies {
   implementation("io.netty:netty-all:$nettyVersion")
   implementation("org.hibernate:hibernate-core:$hibernateCoreVersion")
   implementation("com.github.ben-manes.caffeine:caffeine:$caffeineVersion")
+  implementation("com.github.ben-manes.caffeine:jcache:$caffeineVersion")
+  implementation("org.hibernate.orm:hibernate-jcache:$hibernateCoreVersion")
   implementation("org.hibernate:hibernate-entitymanager:$hibernateEntityManagerVersion")
   implementation("com.zaxxer:HikariCP:$hikariCPVersion")
   implementation("com.fasterxml.jackson.core:jackson-databind:2.18.2")
   implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310:2.18.2")
+  implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile:2.18.2")
+  implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor:2.18.2")
+  implementation("org.lz4:lz4-java:1.8.0")
   implementation("mysql:mysql-connector-java:$mysqlConnectorVersion")
   implementation("io.valkey:valkey-java:$valkeyVersion")
   implementation("org.apache.logging.log4j:log4j-api:$log4jVersion")
@@ -86,6 +93,15 @@ tasks.withType<Test> {
     events = setOf(PASSED, SKIPPED, FAILED)
   }
 }
+// 基准测试：./gradlew jmh，可用 -PjmhIncludes=KeywordScan 只运行匹配的类
+// 结果（含 gc profiler 的分配率）写入 build/results/jmh/results.json
+jmh {
+  jmhVersion.set(openjdkJmhVersion)
+  profilers.set(listOf("gc"))
+  resultFormat.set("JSON")
+  (findProperty("jmhIncludes") as String?)?.let { includes.set(listOf(it)) }
+}
+
 tasks.withType<JavaExec> {
   args = listOf("run", mainVerticleName, "--redeploy=$watchForChange", "--launcher-class=$launcherClassName", "--on-redeploy=$doOnChange")
 }
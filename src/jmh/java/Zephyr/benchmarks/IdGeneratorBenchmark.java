@@ -0,0 +1,28 @@
+package Zephyr.benchmarks;
+
+import Zephyr.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个请求都会调用的请求 ID 生成，单线程和多线程（争用）两种情况。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+  @Benchmark
+  public String generateRequestId() {
+    return IdGenerator.generateRequestId();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String generateRequestIdContended() {
+    return IdGenerator.generateRequestId();
+  }
+}
@@ -0,0 +1,69 @@
+package Zephyr.benchmarks;
+
+import Zephyr.entities.Service;
+import Zephyr.entities.Todo;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/austin/getlist 和 /api/jack/testOrm 的响应编码：把实体列表放进 JsonObject 再 encode。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonEncodingBenchmark {
+
+  @Param({"10", "1000", "10000"})
+  public int size;
+
+  private List<Todo> todos;
+  private List<Service> services;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    todos = new ArrayList<>(size);
+    services = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Todo todo = new Todo();
+      todo.setId((long) i);
+      todo.setTitle("待办事项 todo item #" + i);
+      todo.setCompleted(i % 3 == 0);
+      todos.add(todo);
+
+      Service service = new Service();
+      service.setId((long) i);
+      service.setName("Service Name@" + i);
+      service.setDescription("Updated Description");
+      service.setStatus(i % 2 == 0 ? "active" : "inactive");
+      service.setVersion(i);
+      services.add(service);
+    }
+  }
+
+  @Benchmark
+  public String encodeTodos() {
+    return new JsonObject()
+      .put("status", "ok")
+      .put("message", "Get Todo List Success")
+      .put("timestamp", System.currentTimeMillis())
+      .put("todos", todos)
+      .encode();
+  }
+
+  @Benchmark
+  public String encodeServices() {
+    return new JsonObject()
+      .put("status", "ok")
+      .put("message", "Test ORM Success")
+      .put("timestamp", System.currentTimeMillis())
+      .put("services", services)
+      .encode();
+  }
+}
@@ -0,0 +1,62 @@
+package Zephyr.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 旧版 processFile 的逐行 String.contains 嵌套循环，作为 {@link KeywordScanBenchmark} 的对照。
+ * 耗时与关键词数量成正比，关键词表只取到 1 万。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class NaiveScanBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int keywordCount;
+
+  @Param({"50000"})
+  public int lineCount;
+
+  private Map<String, Integer> keywords;
+  private Path file;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    keywords = SyntheticText.keywords(keywordCount, 1);
+    file = SyntheticText.writeTemp(SyntheticText.lines(keywords, lineCount, 2));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public int[] naiveProcessFile() throws IOException {
+    int res = 0;
+    int lines = 0;
+    try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        for (Map.Entry<String, Integer> entry : keywords.entrySet()) {
+          if (line.contains(entry.getKey())) {
+            res += entry.getValue();
+          }
+        }
+        lines++;
+      }
+    }
+    return new int[]{res, lines};
+  }
+}
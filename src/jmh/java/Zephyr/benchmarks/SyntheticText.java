@@ -0,0 +1,89 @@
+package Zephyr.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成数据：固定随机种子生成的中英文混合关键词表和文本，每次运行结果可复现。
+ */
+final class SyntheticText {
+
+  private static final String LATIN = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+  // 常用汉字，使关键词和文本中的中文分布接近真实内容
+  private static final String HAN = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题党程展五果料象员革位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手角期根论运农指几九区强放决西被干做必战先回则任取据处理队南给色光门即保治北造百规热领七海口东导器压志世金增争济阶油思术极交受联什认六共权收证改清己美再采转更单风切打白教速花带安场身车例真务具万每目至达走积示议声报斗完类八离华名确才科张信马节话米整空元况今集温传土许步群广石记需段研界拉林律叫且究观越织装影算低持音众书布复容儿须际商非验连断深难近矿千周委素技备半办青省列习响约支般史感劳便团往酸历市克何除消构府称太准精值号率族维划选标写存候毛亲快效斯院查江型眼王按格养易置派层片始却专状育厂京识适属圆包火住调满县局照参红细引听该铁价严";
+
+  private SyntheticText() {
+  }
+
+  /**
+   * @param count 关键词数量
+   * @param seed  随机种子
+   * @return 关键词 -> 权重，长度 2~6，约一半是中文
+   */
+  static Map<String, Integer> keywords(int count, long seed) {
+    Random random = new Random(seed);
+    Map<String, Integer> keywords = new LinkedHashMap<>(count * 2);
+    while (keywords.size() < count) {
+      String alphabet = random.nextBoolean() ? HAN : LATIN;
+      keywords.put(randomText(random, alphabet, 2 + random.nextInt(5)), 1 + random.nextInt(20));
+    }
+    return keywords;
+  }
+
+  /**
+   * 生成文本，其中约 1/8 的行包含一个随机挑选的关键词。
+   *
+   * @param keywords 关键词表
+   * @param lines    行数
+   * @param seed     随机种子
+   * @return 文本行
+   */
+  static List<String> lines(Map<String, Integer> keywords, int lines, long seed) {
+    Random random = new Random(seed);
+    List<String> pool = new ArrayList<>(keywords.keySet());
+    List<String> result = new ArrayList<>(lines);
+    for (int i = 0; i < lines; i++) {
+      StringBuilder line = new StringBuilder();
+      int words = 4 + random.nextInt(12);
+      for (int w = 0; w < words; w++) {
+        line.append(randomText(random, random.nextInt(3) == 0 ? LATIN : HAN, 1 + random.nextInt(6))).append(' ');
+      }
+      if (!pool.isEmpty() && random.nextInt(8) == 0) {
+        line.insert(random.nextInt(line.length()), pool.get(random.nextInt(pool.size())));
+      }
+      result.add(line.toString());
+    }
+    return result;
+  }
+
+  /**
+   * 把文本行写入临时文件，JVM 退出时删除。
+   */
+  static Path writeTemp(List<String> lines) throws IOException {
+    Path file = Files.createTempFile("zephyr-bench", ".txt");
+    file.toFile().deleteOnExit();
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    }
+    return file;
+  }
+
+  static String randomText(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,51 @@
+package Zephyr.benchmarks;
+
+import Zephyr.caches.Tasks;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Tasks#toJson} 和 {@link Tasks#fromJson} 的开销，作为 {@link TasksSerializationBenchmark} 中各编码格式的基线。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TasksJsonBenchmark {
+
+  @Param({"8", "512"})
+  public int entries;
+
+  private Tasks task;
+  private String json;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Map<String, Object> value = new LinkedHashMap<>();
+    for (int i = 0; i < entries; i++) {
+      value.put("field" + i, i % 2 == 0 ? "value-" + i : i);
+    }
+    task = new Tasks("zephyr:bench:" + entries, value);
+    json = task.toJson();
+  }
+
+  @Benchmark
+  public String serialize() {
+    return task.toJson();
+  }
+
+  @Benchmark
+  public Tasks deserialize() {
+    return Tasks.fromJson(json);
+  }
+
+  @Benchmark
+  public Tasks roundTrip() {
+    return Tasks.fromJson(task.toJson());
+  }
+}
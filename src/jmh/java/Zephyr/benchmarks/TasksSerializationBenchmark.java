@@ -0,0 +1,54 @@
+package Zephyr.benchmarks;
+
+import Zephyr.caches.TaskCodec;
+import Zephyr.caches.Tasks;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Tasks} 写入和读出 ValKey 前后的编解码开销（不含网络），值为扫描任务状态这样的小 Map。
+ * 不带数据头的 JSON 基线见 {@link TasksJsonBenchmark}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TasksSerializationBenchmark {
+
+  @Param({"8", "512"})
+  public int entries;
+
+  // 写入 ValKey 时使用的编码格式，超过 1 KB 时压缩
+  @Param({"JSON", "SMILE", "CBOR"})
+  public TaskCodec.Format format;
+
+  private Tasks task;
+  private TaskCodec codec;
+  private byte[] encoded;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Map<String, Object> value = new LinkedHashMap<>();
+    for (int i = 0; i < entries; i++) {
+      value.put("field" + i, i % 2 == 0 ? "value-" + i : i);
+    }
+    task = new Tasks("zephyr:bench:" + entries, value);
+    codec = new TaskCodec(format, 1024);
+    encoded = codec.encode(task);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return codec.encode(task);
+  }
+
+  @Benchmark
+  public Tasks decode() {
+    return TaskCodec.decode(encoded);
+  }
+}
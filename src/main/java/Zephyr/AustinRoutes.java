@@ -1,20 +1,41 @@
 package Zephyr;
 
+import Zephyr.caches.PrefetchBuffer;
+import Zephyr.caches.RefreshingCache;
 import Zephyr.entities.Todo;
+import Zephyr.repositories.TodoRepository;
+import io.github.cdimascio.dotenv.Dotenv;
 import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
-import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.vertx.ext.web.handler.BodyHandler;
+import jakarta.persistence.EntityManager;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
+import static Zephyr.MainVerticle.dbHelperInstance;
 import static Zephyr.requests.weather.sendHttpRequest;
 
 
@@ -24,11 +45,41 @@ import static Zephyr.requests.weather.sendHttpRequest;
 public class AustinRoutes {
 
   private static final Logger log = LoggerFactory.getLogger(AustinRoutes.class);
+  private static final int GETLIST_DEFAULT_LIMIT = 100;
+  private static final int GETLIST_MAX_LIMIT = 1000;
+  // 天气数据按分钟级变化
+  private static final long WEATHER_TTL_SECONDS = Long.parseLong(Dotenv.load().get("WEATHER_CACHE_TTL_SECONDS", "300"));
+  private static final long WEATHER_STALE_SECONDS = Long.parseLong(Dotenv.load().get("WEATHER_CACHE_STALE_SECONDS", "1800"));
+  private static final String POEM_URL = "https://api.qster.top/API/v1/randpo/";
+  private static final int TODO_BATCH_MAX = Integer.parseInt(Dotenv.load().get("TODO_BATCH_MAX", "1000"));
   private final Vertx vertx;
+  private final TodoRepository todoRepository;
+  // 上游接口共用的 WebClient
+  private final WebClient client;
+  private final RefreshingCache weatherCache;
+  private final PrefetchBuffer<JsonObject> poemBuffer;
 
   // 构造函数，接收 Vert.x 实例
   public AustinRoutes(Vertx vertx) {
     this.vertx = vertx;
+    this.todoRepository = new TodoRepository(dbHelper.getPool());
+    // 配置 WebClient（类似 httpx）
+    WebClientOptions options = new WebClientOptions()
+      // 设置超时时间
+      .setConnectTimeout(5000)
+      // 支持 HTTPS
+      .setSsl(true);
+    this.client = WebClient.create(vertx, options);
+    this.weatherCache = new RefreshingCache(vertx, "weather",
+      Duration.ofSeconds(WEATHER_TTL_SECONDS), Duration.ofSeconds(WEATHER_STALE_SECONDS),
+      Duration.ofSeconds(Long.parseLong(Dotenv.load().get("WEATHER_CACHE_NEGATIVE_SECONDS", "30"))),
+      Long.parseLong(Dotenv.load().get("WEATHER_CACHE_MAX_ENTRIES", "1000")));
+    // 随机诗词每次都不同，不能缓存，改为后台预取
+    this.poemBuffer = new PrefetchBuffer<>(vertx, "poem",
+      Integer.parseInt(Dotenv.load().get("POEM_BUFFER_CAPACITY", "32")),
+      Integer.parseInt(Dotenv.load().get("POEM_BUFFER_LOW_WATER", "8")),
+      Integer.parseInt(Dotenv.load().get("POEM_BUFFER_CONCURRENCY", "2")),
+      () -> sendHttpRequest(client, POEM_URL));
   }
 
   // 创建并返回一个子路由器
@@ -48,6 +99,9 @@ public class AustinRoutes {
     router.post("/todolist").handler(this::handleTodo);
     router.route().handler(BodyHandler.create());
 
+    // 定义 "/api/austin/todolist/batch" 路径，批量新建/修改
+    router.post("/todolist/batch").handler(BlockingRoute.of("todoBatch", 4, this::handleTodoBatch));
+
     // 定义 "/api/austin/getlist" 路径
     router.get("/getlist").handler(this::handleGetList);
 
@@ -68,8 +122,9 @@ public class AustinRoutes {
   }
 
   // 处理 "/api/austin/weather" 路径的逻辑
+  // 缓存状态写在 X-Cache（HIT/STALE/MISS），ETag 由加载时间和内容生成，客户端和 CDN 可以用 If-None-Match 重新验证
   private void handleWeather(RoutingContext ctx) {
-    String city = ctx.request().getParam("city");
+    String city = normalizeCity(ctx.request().getParam("city"));
     if (city == null) {
       ctx.response()
         .setStatusCode(400)
@@ -77,52 +132,71 @@ public class AustinRoutes {
         .end(new JsonObject().put("error", "城市参数缺失").encode());
       return;
     }
-    // 配置 WebClient（类似 httpx）
-    WebClientOptions options = new WebClientOptions()
-       // 设置超时时间
-      .setConnectTimeout(5000)
-      // 支持 HTTPS
-      .setSsl(true);
-
-    WebClient client = WebClient.create(vertx, options);
-
-    // 创建异步任务
-    sendHttpRequest(client, "https://api.qster.top/API/v1/weather/?city=" + city)
-      .compose(response -> {
-        ctx.response()
-          .putHeader("Content-Type", "application/json")
-          .end(response.encode());
+    // 同一城市的并发请求共享一次上游调用，过期后先返回旧值再后台刷新
+    weatherCache.get(city, () -> sendHttpRequest(client,
+          "https://api.qster.top/API/v1/weather/?city=" + URLEncoder.encode(city, StandardCharsets.UTF_8))
+        .map(JsonObject::encode))
+      .compose(result -> {
+        long ageSeconds = Math.max(0, (System.currentTimeMillis() - result.loadedAt()) / 1000);
+        String etag = "\"" + Long.toHexString(result.loadedAt()) + "-" + Integer.toHexString(result.value().hashCode()) + "\"";
+        HttpServerResponse response = ctx.response()
+          .putHeader("X-Cache", result.status().name())
+          .putHeader("ETag", etag)
+          .putHeader("Age", String.valueOf(ageSeconds))
+          .putHeader("Cache-Control", "public, max-age=" + Math.max(0, WEATHER_TTL_SECONDS - ageSeconds)
+            + ", stale-while-revalidate=" + WEATHER_STALE_SECONDS);
+        String ifNoneMatch = ctx.request().getHeader("If-None-Match");
+        if (ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(",")).map(String::strip).anyMatch(etag::equals)) {
+          response.setStatusCode(304).end();
+        } else {
+          response.putHeader("Content-Type", "application/json").end(result.value());
+        }
         return Future.succeededFuture();
       }).onFailure(err -> {
-        System.err.println("Error: " + err.getMessage());
-        ctx.fail(400);
+        log.warn("Failed to fetch weather for {}: {}", city, err.getMessage());
+        if (!(err instanceof RefreshingCache.LoadFailedException failure)) {
+          ctx.fail(500);
+          return;
+        }
+        // 负缓存期间不访问上游，告诉客户端何时重试；本次上游调用失败则是网关错误
+        HttpServerResponse response = ctx.response();
+        if (failure.isNegativeHit()) {
+          response.setStatusCode(503)
+            .putHeader("Retry-After", String.valueOf(Math.max(1, (failure.getRetryAfterMs() + 999) / 1000)));
+        } else {
+          response.setStatusCode(502);
+        }
+        response.putHeader("Content-Type", "application/json")
+          .end(new JsonObject().put("error", "天气服务暂时不可用").encode());
       });
   }
 
+  // 缓存键使用规范化后的城市名：全角转半角（NFKC）、去掉首尾空白、合并连续空白、转小写
+  static String normalizeCity(String city) {
+    if (city == null) {
+      return null;
+    }
+    String normalized = Normalizer.normalize(city, Normalizer.Form.NFKC)
+      .strip()
+      .replaceAll("\\s+", " ")
+      .toLowerCase(Locale.ROOT);
+    return normalized.isEmpty() || normalized.length() > 64 ? null : normalized;
+  }
+
   //处理 "/api/austin/poem" 路径的逻辑
   private void handlePoem(RoutingContext ctx) {
-    // 配置 WebClient（类似 httpx）
-    WebClientOptions options = new WebClientOptions()
-      // 设置超时时间
-      .setConnectTimeout(5000)
-      // 支持 HTTPS
-      .setSsl(true);
-
-    WebClient client = WebClient.create(vertx, options);
-
-    // 创建异步任务
-    sendHttpRequest(client, "https://api.qster.top/API/v1/randpo/")
-      .compose(response -> {
-        ctx.response()
-          .putHeader("Content-Type", "application/json")
-          .end(response.encode());
-        return Future.succeededFuture();
-      }).onFailure(err -> {
-        System.err.println("Error: " + err.getMessage());
+    // 从预取缓冲区取出一首，缓冲区为空时才直接请求上游
+    poemBuffer.take()
+      .onSuccess(poem -> ctx.response()
+        .putHeader("Content-Type", "application/json")
+        .end(poem.encode()))
+      .onFailure(err -> {
+        log.error("Failed to fetch poem: {}", err.getMessage());
         ctx.fail(400);
       });
   }
 
+
   //处理 "/api/austin/todolist" 路径的逻辑
   private void handleTodo(RoutingContext ctx) {
     ctx.request().bodyHandler(buffer -> {
@@ -134,80 +208,217 @@ public class AustinRoutes {
       Long id = body.getLong("id", null); // 如果 id 不存在，默认为 null
 
       log.info("Received title: " + title);
-      ctx.response()
-        .setStatusCode(200)
-        .putHeader("Content-Type", "application/json");
-
-      // 获取 EntityManager
-      EntityManager entityManager = dbHelper.getEntityManagerFactory().createEntityManager();
+      if (title == null) {
+        ctx.response()
+          .setStatusCode(400)
+          .putHeader("Content-Type", "application/json")
+          .end(new JsonObject().put("error", "title 参数缺失").encode());
+        return;
+      }
 
-      try {
-        // 开始事务
-        entityManager.getTransaction().begin();
-
-        Todo todo;
-        if (id != null) {
-          // 如果提供了 ID，则尝试查找现有记录
-          todo = entityManager.find(Todo.class, id);
-          if (todo != null) {
-            log.info("Updating existing Todo with ID: " + id);
-            todo.setTitle(title); // 更新现有记录
-          } else {
+      // 如果提供了 ID，则更新现有记录，否则创建新的 Todo
+      if (id != null) {
+        log.info("Updating existing Todo with ID: " + id);
+      } else {
+        log.info("Creating a new Todo");
+      }
+      (id != null ? todoRepository.updateTitle(id, title) : todoRepository.insert(title))
+        .onSuccess(todo -> {
+          if (todo == null) {
             ctx.response()
               .setStatusCode(404)
+              .putHeader("Content-Type", "application/json")
               .end(new JsonObject().put("error", "Todo with ID " + id + " not found").encode());
-            entityManager.getTransaction().rollback();
             return;
           }
-        } else {
-          // 如果未提供 ID，则创建新的 Todo
-          log.info("Creating a new Todo");
-          todo = new Todo();
-          todo.setTitle(title);
-          entityManager.persist(todo); // 持久化新记录
-        }
-
-        // 提交事务
-        entityManager.getTransaction().commit();
+          // 构建响应
+          JsonObject response = new JsonObject()
+            .put("status", "ok")
+            .put("id", todo.getId())
+            .put("title", todo.getTitle());
+          ctx.response()
+            .putHeader("Content-Type", "application/json")
+            .end(response.encode());
+        })
+        .onFailure(err -> ctx.response()
+          .setStatusCode(500)
+          .end("Error: " + err.getMessage()));
+    });
+  }
 
-        // 构建响应
-        JsonObject response = new JsonObject()
-          .put("status", "ok")
-          .put("id", todo.getId())
-          .put("title", todo.getTitle());
+  //处理 "/api/austin/todolist/batch" 路径的逻辑
+  // 请求体为数组：[{"id": 可选, "title": "...", "completed": 可选}, ...]，有 id 的修改，没有 id 的新建
+  // 全部在一个事务中完成，INSERT/UPDATE 按 hibernate.jdbc.batch_size 分批发送；任一 ID 不存在则整批回滚
+  private void handleTodoBatch(RoutingContext ctx) {
+    JsonArray items;
+    try {
+      items = ctx.body().asJsonArray();
+    } catch (DecodeException | ClassCastException e) {
+      items = null;
+    }
+    if (items == null || items.isEmpty() || items.size() > TODO_BATCH_MAX) {
+      ctx.response()
+        .setStatusCode(400)
+        .putHeader("Content-Type", "application/json")
+        .end(new JsonObject().put("error", "请求体必须是 1 到 " + TODO_BATCH_MAX + " 条待办事项的数组").encode());
+      return;
+    }
+    List<JsonObject> requests = new ArrayList<>(items.size());
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < items.size(); i++) {
+      Object item = items.getValue(i);
+      if (!(item instanceof JsonObject json) || json.getString("title") == null) {
         ctx.response()
+          .setStatusCode(400)
           .putHeader("Content-Type", "application/json")
-          .end(response.encode());
+          .end(new JsonObject().put("error", "第 " + i + " 条缺少 title").encode());
+        return;
+      }
+      requests.add(json);
+      Long id = json.getLong("id");
+      if (id != null) {
+        ids.add(id);
+      }
+    }
 
-      } catch (Exception e) {
-        // 事务出错时回滚
+    List<Todo> saved = new ArrayList<>(requests.size());
+    try (EntityManager entityManager = dbHelperInstance.getEntityManager()) {
+      entityManager.getTransaction().begin();
+      try {
+        // 要修改的记录一次查出
+        Map<Long, Todo> existing = new HashMap<>();
+        if (!ids.isEmpty()) {
+          entityManager.createQuery("SELECT t FROM Todo t WHERE t.id IN :ids", Todo.class)
+            .setParameter("ids", ids)
+            .getResultList()
+            .forEach(todo -> existing.put(todo.getId(), todo));
+        }
+        List<Long> missing = ids.stream().filter(id -> !existing.containsKey(id)).sorted().toList();
+        if (!missing.isEmpty()) {
+          entityManager.getTransaction().rollback();
+          ctx.response()
+            .setStatusCode(404)
+            .putHeader("Content-Type", "application/json")
+            .end(new JsonObject().put("error", "Todo not found").put("ids", missing).encode());
+          return;
+        }
+        for (JsonObject request : requests) {
+          Long id = request.getLong("id");
+          Todo todo = id != null ? existing.get(id) : new Todo();
+          todo.setTitle(request.getString("title"));
+          todo.setCompleted(request.getBoolean("completed", todo.getCompleted()));
+          if (id == null) {
+            entityManager.persist(todo);
+          }
+          saved.add(todo);
+        }
+        entityManager.getTransaction().commit();
+      } catch (RuntimeException e) {
         if (entityManager.getTransaction().isActive()) {
           entityManager.getTransaction().rollback();
         }
-        ctx.response()
-          .setStatusCode(500)
-          .end("Error: " + e.getMessage());
-      } finally {
-        // 关闭 EntityManager
-        entityManager.close();
+        throw e;
       }
-    });
+    }
+    log.info("Saved {} todos ({} updated)", saved.size(), ids.size());
+
+    ctx.response()
+      .putHeader("Content-Type", "application/json")
+      .end(new JsonObject()
+        .put("status", "ok")
+        .put("todos", saved)
+        .encode());
   }
 
-  //"api/austin/getlist" 获取所有的todolist
+  //"api/austin/getlist" 分页获取todolist
+  // 参数：after 游标（上一页返回的 nextCursor，默认 0），limit 每页条数（默认 100，最多 1000）
+  // stream=true 时按页读取全部记录，边读边以 chunked 方式写出，内存占用只和每页条数有关
   private void handleGetList(RoutingContext ctx) {
-    EntityManager entityManager = dbHelper.getEntityManagerFactory().createEntityManager();
-    List<Todo> todos = entityManager.createQuery("SELECT t FROM Todo t", Todo.class).getResultList();
-    entityManager.close();
-    JsonObject response = new JsonObject()
+    long after;
+    int limit;
+    try {
+      after = Long.parseLong(ctx.request().getParam("after", "0"));
+      limit = Integer.parseInt(ctx.request().getParam("limit", String.valueOf(GETLIST_DEFAULT_LIMIT)));
+    } catch (NumberFormatException e) {
+      ctx.fail(400);
+      return;
+    }
+    if (after < 0 || limit <= 0) {
+      ctx.fail(400);
+      return;
+    }
+    limit = Math.min(limit, GETLIST_MAX_LIMIT);
+
+    if ("true".equals(ctx.request().getParam("stream"))) {
+      streamTodos(ctx, after, limit);
+      return;
+    }
+
+    int pageSize = limit;
+    todoRepository.findPage(after, pageSize)
+      .onSuccess(todos -> {
+        // 取满一页才可能还有下一页
+        Long nextCursor = todos.size() == pageSize ? todos.get(todos.size() - 1).getId() : null;
+        JsonObject response = new JsonObject()
+          .put("status", "ok")
+          .put("message", "Get Todo List Success")
+          .put("timestamp", System.currentTimeMillis())
+          .put("todos", todos)
+          .put("nextCursor", nextCursor);
+        ctx.response()
+          .putHeader("Content-Type", "application/json")
+          .end(response.encode());
+      })
+      .onFailure(ctx::fail);
+  }
+
+  // 流式输出：先写响应头和数组开头，每读到一页就写出一页，客户端接收不过来时等 drain 再读下一页
+  private void streamTodos(RoutingContext ctx, long after, int pageSize) {
+    HttpServerResponse response = ctx.response()
+      .setChunked(true)
+      .putHeader("Content-Type", "application/json");
+    response.write(new JsonObject()
       .put("status", "ok")
       .put("message", "Get Todo List Success")
       .put("timestamp", System.currentTimeMillis())
-      .put("todos", todos);
-    ctx.response()
-      .putHeader("Content-Type", "application/json")
-      .end(response.encode());
+      .encode()
+      // 去掉结尾的 }，接着写 todos 数组
+      .replaceFirst("}$", ",\"todos\":["));
+    streamPage(ctx, after, pageSize, true);
   }
-}
-
 
+  private void streamPage(RoutingContext ctx, long after, int pageSize, boolean first) {
+    HttpServerResponse response = ctx.response();
+    todoRepository.findPage(after, pageSize)
+      .onSuccess(todos -> {
+        if (response.closed()) {
+          return;
+        }
+        Buffer chunk = Buffer.buffer();
+        boolean needComma = !first;
+        for (Todo todo : todos) {
+          if (needComma) {
+            chunk.appendByte((byte) ',');
+          }
+          chunk.appendBuffer(Json.encodeToBuffer(todo));
+          needComma = true;
+        }
+        if (todos.size() < pageSize) {
+          response.end(chunk.appendString("]}"));
+          return;
+        }
+        response.write(chunk);
+        long next = todos.get(todos.size() - 1).getId();
+        if (response.writeQueueFull()) {
+          response.drainHandler(v -> streamPage(ctx, next, pageSize, false));
+        } else {
+          streamPage(ctx, next, pageSize, false);
+        }
+      })
+      .onFailure(err -> {
+        // 响应头已经发出，只能断开连接让客户端知道结果不完整
+        log.error("Streaming todo list failed", err);
+        response.reset();
+      });
+  }
+}
@@ -0,0 +1,91 @@
+package Zephyr;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阻塞路由：把必须走 Hibernate/JDBC 的处理器放到虚拟线程中执行，事件循环不再被阻塞，
+ * 处理器内部仍然可以按同步方式编写（直接调用 EntityManager、直接写响应）。
+ * <p>
+ * 每个路由有独立的并发上限（默认值可以用 BLOCKING_&lt;NAME&gt;_MAX_CONCURRENT 覆盖），
+ * 超过上限的请求在虚拟线程中排队，等待超过 BLOCKING_ROUTE_WAIT_MS 后返回 503。
+ * 请求 ID 会写入 log4j 的 ThreadContext（requestId、route），日志中可以直接关联到请求。
+ * <p>
+ * 写响应可以在虚拟线程中直接进行；处理器抛出的异常会切回事件循环再交给 {@code ctx.fail}。
+ * 不要在处理器中调用 {@code ctx.next()}。
+ */
+public final class BlockingRoute {
+
+  /**
+   * RoutingContext 中保存请求 ID 的键，由 MainVerticle 的通用路由写入。
+   */
+  public static final String REQUEST_ID = "requestId";
+
+  private static final ExecutorService EXECUTOR =
+    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("zephyr-blocking-", 0).factory());
+  private static final long WAIT_MS = Long.parseLong(Dotenv.load().get("BLOCKING_ROUTE_WAIT_MS", "5000"));
+
+  private BlockingRoute() {
+  }
+
+  /**
+   * 创建一个在虚拟线程中执行的路由处理器。
+   *
+   * @param name          路由名称，用于日志和并发上限配置
+   * @param maxConcurrent 默认的最大并发数，一般不超过该路由所用连接池的大小
+   * @param handler       阻塞的处理逻辑
+   * @return 可以注册到 Router 上的处理器
+   */
+  public static Handler<RoutingContext> of(String name, int maxConcurrent, Blocking handler) {
+    int limit = Integer.parseInt(Dotenv.load().get(
+      "BLOCKING_" + name.toUpperCase() + "_MAX_CONCURRENT", String.valueOf(maxConcurrent)));
+    Semaphore permits = new Semaphore(limit);
+    return ctx -> {
+      Context context = ctx.vertx().getOrCreateContext();
+      String requestId = ctx.get(REQUEST_ID);
+      EXECUTOR.execute(() -> {
+        if (requestId != null) {
+          ThreadContext.put(REQUEST_ID, requestId);
+        }
+        ThreadContext.put("route", name);
+        boolean acquired = false;
+        try {
+          acquired = permits.tryAcquire(WAIT_MS, TimeUnit.MILLISECONDS);
+          if (!acquired) {
+            // 排队超时
+            context.runOnContext(v -> ctx.fail(503));
+            return;
+          }
+          handler.handle(ctx);
+        } catch (Throwable t) {
+          context.runOnContext(v -> {
+            if (!ctx.response().ended()) {
+              ctx.fail(t);
+            }
+          });
+        } finally {
+          if (acquired) {
+            permits.release();
+          }
+          ThreadContext.clearMap();
+        }
+      });
+    };
+  }
+
+  /**
+   * 可以抛出受检异常的阻塞处理逻辑。
+   */
+  @FunctionalInterface
+  public interface Blocking {
+    void handle(RoutingContext ctx) throws Exception;
+  }
+}
@@ -1,70 +1,532 @@
 package Zephyr;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * DatabaseQueue class for managing database tasks.
- * This class uses a thread-safe queue to manage tasks and a fixed thread pool to process them.
- * Tasks can be added to the queue and will be processed by the thread pool.
- * The class provides methods to add tasks, start processing, and shut down the queue.
- * 
+ * Tasks are kept in a bounded queue with one lane per {@link Priority} and processed by a fixed thread pool;
+ * higher-priority lanes are always drained first. Every submission returns a {@link CompletableFuture}
+ * (or a Vert.x {@link Future} completed on the caller's context).
+ * <p>
+ * When the queue is full the configured {@link OverflowPolicy} decides what happens to new tasks.
+ * Statements submitted with {@link #submitStatement} that share the same SQL are micro-batched:
+ * a worker takes the contiguous run of statements with the same SQL at the head of a lane (up to the
+ * batch limit) and runs them as one JDBC batch in a single transaction. Coalescing stops at the first
+ * different task, so a worker never runs a lane's writes out of order; with more than one worker, tasks
+ * taken by different workers run concurrently, so submission order only holds for a single-worker queue.
+ * If the batch fails it is rolled back and the statements are retried one by one, so one bad row only
+ * fails its own future.
+ * <p>
+ * Queue depth, wait time and execution time are tracked per queue, see {@link #metrics()}.
+ *
  * Author: binaryYuki
  */
 public class DatabaseQueue {
 
-  private final BlockingQueue<Runnable> queue;
+  private static final Logger log = LoggerFactory.getLogger(DatabaseQueue.class);
+  // 所有队列，按名称索引，用于统一输出指标
+  private static final Map<String, DatabaseQueue> QUEUES = new ConcurrentHashMap<>();
+
+  /**
+   * Task priority; lanes are drained from HIGH to LOW.
+   */
+  public enum Priority {
+    HIGH, NORMAL, LOW
+  }
+
+  /**
+   * What to do with a new task when the queue is at capacity.
+   */
+  public enum OverflowPolicy {
+    /** Fail the new task with {@link RejectedExecutionException}. */
+    REJECT,
+    /** Drop the oldest queued task whose priority is not higher than the new one; reject if there is none. */
+    DROP_OLDEST,
+    /** Block the submitting thread until space is available. Never use this from the event loop. */
+    BLOCK,
+    /** Run the task on the submitting thread. Never use this from the event loop. */
+    CALLER_RUNS
+  }
+
+  private final String name;
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final int maxBatch;
+  private final Supplier<DataSource> dataSource;
   private final ExecutorService executorService;
 
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final List<ArrayDeque<Job<?>>> lanes = new ArrayList<>();
+  private int size;
+  private boolean shutdown;
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder batchedStatements = new LongAdder();
+  private final LongAdder started = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder execNanos = new LongAdder();
+  private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+  private final LongAccumulator maxExecNanos = new LongAccumulator(Math::max, 0);
+
   /**
    * Constructor for DatabaseQueue.
-   * Initializes the queue and the thread pool with the specified pool size.
-   * 
+   * Capacity, overflow policy and batch size are read from DB_QUEUE_CAPACITY (10000),
+   * DB_QUEUE_OVERFLOW (REJECT) and DB_QUEUE_MAX_BATCH (100); statements use the shared Hikari pool.
+   *
    * @param poolSize the number of threads in the pool
    */
   public DatabaseQueue(int poolSize) {
-    this.queue = new LinkedBlockingQueue<>();
-    this.executorService = Executors.newFixedThreadPool(poolSize);
-    startProcessing();
+    this("database-queue", poolSize);
+  }
+
+  /**
+   * Constructor for a named DatabaseQueue with settings from the environment.
+   *
+   * @param name     queue name, used for thread names and metrics
+   * @param poolSize the number of threads in the pool
+   */
+  public DatabaseQueue(String name, int poolSize) {
+    this(name, poolSize,
+      Integer.parseInt(Dotenv.load().get("DB_QUEUE_CAPACITY", "10000")),
+      OverflowPolicy.valueOf(Dotenv.load().get("DB_QUEUE_OVERFLOW", "REJECT")),
+      Integer.parseInt(Dotenv.load().get("DB_QUEUE_MAX_BATCH", "100")),
+      dbHelper::getDataSource);
   }
 
   /**
-   * Add a task to the queue.
-   * 
+   * Constructor for DatabaseQueue.
+   * Initializes the lanes and the thread pool with the specified pool size.
+   *
+   * @param name           queue name, used for thread names and metrics
+   * @param poolSize       the number of threads in the pool
+   * @param capacity       maximum number of queued (not yet running) tasks
+   * @param overflowPolicy what to do when the queue is full
+   * @param maxBatch       maximum number of statements executed in one batch
+   * @param dataSource     connection source for {@link #submitStatement}
+   */
+  public DatabaseQueue(String name, int poolSize, int capacity, OverflowPolicy overflowPolicy,
+                       int maxBatch, Supplier<DataSource> dataSource) {
+    this.name = name;
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.maxBatch = Math.max(1, maxBatch);
+    this.dataSource = dataSource;
+    for (int i = 0; i < Priority.values().length; i++) {
+      lanes.add(new ArrayDeque<>());
+    }
+    AtomicInteger threads = new AtomicInteger();
+    this.executorService = Executors.newFixedThreadPool(poolSize,
+      r -> new Thread(r, "zephyr-" + name + "-" + threads.incrementAndGet()));
+    startProcessing(poolSize);
+    QUEUES.put(name, this);
+  }
+
+  /**
+   * Add a fire-and-forget task to the queue with normal priority.
+   * Failures are only logged; use {@link #submit} to observe the result.
+   *
    * @param task the task to be added to the queue
    */
   public void addTask(Runnable task) {
-    queue.offer(task);
+    submit(Executors.callable(task), Priority.NORMAL)
+      .exceptionally(e -> {
+        log.error("Task in queue {} failed", name, e);
+        return null;
+      });
+  }
+
+  /**
+   * Submit a task.
+   *
+   * @param task     the work to run on a queue thread
+   * @param priority lane to queue it in
+   * @return the task result; fails with {@link RejectedExecutionException} if the task was not accepted
+   */
+  public <T> CompletableFuture<T> submit(Callable<T> task, Priority priority) {
+    return enqueue(new Job<>(task, null, null, priority));
+  }
+
+  /**
+   * Submit a task and observe the result on a Vert.x context.
+   *
+   * @param context  context the returned future is completed on
+   * @param task     the work to run on a queue thread
+   * @param priority lane to queue it in
+   * @return the task result
+   */
+  public <T> Future<T> submit(Context context, Callable<T> task, Priority priority) {
+    return Future.fromCompletionStage(submit(task, priority), context);
+  }
+
+  /**
+   * Submit a single write statement. Consecutive statements with identical SQL waiting in the
+   * same lane are executed together as one JDBC batch in one transaction. Statements are only
+   * guaranteed to run in submission order when the queue has a single worker.
+   *
+   * @param sql      statement with ? placeholders
+   * @param params   parameter values, bound with setObject
+   * @param priority lane to queue it in
+   * @return the update count reported by the driver for this statement
+   */
+  public CompletableFuture<Integer> submitStatement(String sql, Object[] params, Priority priority) {
+    return enqueue(new Job<>(null, sql, params, priority));
+  }
+
+  /**
+   * Submit a single write statement and observe the result on a Vert.x context.
+   *
+   * @see #submitStatement(String, Object[], Priority)
+   */
+  public Future<Integer> submitStatement(Context context, String sql, Object[] params, Priority priority) {
+    return Future.fromCompletionStage(submitStatement(sql, params, priority), context);
+  }
+
+  private <T> CompletableFuture<T> enqueue(Job<T> job) {
+    submitted.increment();
+    boolean runInline = false;
+    lock.lock();
+    try {
+      while (!shutdown && size >= capacity && !runInline) {
+        switch (overflowPolicy) {
+          case REJECT -> {
+            reject(job, "Queue " + name + " is full");
+            return job.result;
+          }
+          case DROP_OLDEST -> {
+            Job<?> victim = pollOldestAtOrBelow(job.priority);
+            if (victim == null) {
+              reject(job, "Queue " + name + " is full");
+              return job.result;
+            }
+            size--;
+            reject(victim, "Dropped from queue " + name + " to make room");
+          }
+          case BLOCK -> {
+            try {
+              notFull.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              reject(job, "Interrupted while waiting for queue " + name);
+              return job.result;
+            }
+          }
+          case CALLER_RUNS -> runInline = true;
+        }
+      }
+      if (shutdown) {
+        reject(job, "Queue " + name + " is shut down");
+        return job.result;
+      }
+      if (!runInline) {
+        lanes.get(job.priority.ordinal()).addLast(job);
+        size++;
+        notEmpty.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (runInline) {
+      execute(List.of(job));
+    }
+    return job.result;
+  }
+
+  // 在不高于 priority 的通道中，从最低优先级开始找最早入队的任务
+  private Job<?> pollOldestAtOrBelow(Priority priority) {
+    for (int lane = lanes.size() - 1; lane >= priority.ordinal(); lane--) {
+      Job<?> job = lanes.get(lane).pollFirst();
+      if (job != null) {
+        return job;
+      }
+    }
+    return null;
+  }
+
+  private void reject(Job<?> job, String message) {
+    rejected.increment();
+    job.result.completeExceptionally(new RejectedExecutionException(message));
   }
 
   /**
    * Start processing tasks from the queue.
-   * Each thread in the pool will continuously take tasks from the queue and execute them.
+   * Each thread in the pool will continuously take the next task (or batch of statements) and execute it.
    */
-  private void startProcessing() {
-    for (int i = 0; i < ((ThreadPoolExecutor) executorService).getCorePoolSize(); i++) {
+  private void startProcessing(int poolSize) {
+    for (int i = 0; i < poolSize; i++) {
       executorService.submit(() -> {
         while (true) {
+          List<Job<?>> batch;
           try {
-            Runnable task = queue.take();
-            task.run();
+            batch = take();
           } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             break;
           }
+          if (batch == null) {
+            break;
+          }
+          execute(batch);
         }
       });
     }
   }
 
+  // 取出下一个任务；如果是语句，顺带取出同一优先级中紧随其后、SQL 相同的语句，
+  // 遇到第一条不同的任务即停止，不会把后面的语句提前到其他写入之前。队列关闭且为空时返回 null
+  private List<Job<?>> take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (size == 0) {
+        if (shutdown) {
+          return null;
+        }
+        notEmpty.await();
+      }
+      ArrayDeque<Job<?>> lane = null;
+      for (ArrayDeque<Job<?>> candidate : lanes) {
+        if (!candidate.isEmpty()) {
+          lane = candidate;
+          break;
+        }
+      }
+      Job<?> first = lane.pollFirst();
+      List<Job<?>> batch = new ArrayList<>();
+      batch.add(first);
+      if (first.sql != null) {
+        while (batch.size() < maxBatch && !lane.isEmpty() && first.sql.equals(lane.peekFirst().sql)) {
+          batch.add(lane.pollFirst());
+        }
+      }
+      size -= batch.size();
+      notFull.signalAll();
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void execute(List<Job<?>> batch) {
+    long now = System.nanoTime();
+    for (Job<?> job : batch) {
+      long waited = now - job.enqueuedAt;
+      started.increment();
+      waitNanos.add(waited);
+      maxWaitNanos.accumulate(waited);
+    }
+    if (batch.get(0).sql == null) {
+      runTask(batch.get(0));
+    } else {
+      runStatements(batch);
+    }
+    long elapsed = System.nanoTime() - now;
+    executions.increment();
+    execNanos.add(elapsed);
+    maxExecNanos.accumulate(elapsed);
+  }
+
+  private <T> void runTask(Job<T> job) {
+    try {
+      T value = job.task.call();
+      completed.increment();
+      job.result.complete(value);
+    } catch (Throwable e) {
+      failed.increment();
+      job.result.completeExceptionally(e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runStatements(List<Job<?>> batch) {
+    String sql = batch.get(0).sql;
+    if (batch.size() > 1) {
+      batches.increment();
+      batchedStatements.add(batch.size());
+    }
+    try (Connection connection = dataSource.get().getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        for (Job<?> job : batch) {
+          bind(stmt, job.params);
+          stmt.addBatch();
+        }
+        int[] counts = stmt.executeBatch();
+        connection.commit();
+        for (int i = 0; i < batch.size(); i++) {
+          completed.increment();
+          ((Job<Integer>) batch.get(i)).result.complete(i < counts.length ? counts[i] : PreparedStatement.SUCCESS_NO_INFO);
+        }
+        return;
+      } catch (SQLException e) {
+        connection.rollback();
+        if (batch.size() == 1) {
+          throw e;
+        }
+        log.warn("Batch of {} statements failed in queue {}, retrying individually", batch.size(), name, e);
+      } finally {
+        connection.setAutoCommit(true);
+      }
+      // 整批失败后逐条重试（自动提交），只让出错的那条失败
+      for (Job<?> job : batch) {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+          bind(stmt, job.params);
+          int count = stmt.executeUpdate();
+          completed.increment();
+          ((Job<Integer>) job).result.complete(count);
+        } catch (SQLException e) {
+          failed.increment();
+          job.result.completeExceptionally(e);
+        }
+      }
+    } catch (Throwable e) {
+      for (Job<?> job : batch) {
+        if (job.result.completeExceptionally(e)) {
+          failed.increment();
+        }
+      }
+    }
+  }
+
+  private static void bind(PreparedStatement stmt, Object[] params) throws SQLException {
+    if (params == null) {
+      return;
+    }
+    for (int i = 0; i < params.length; i++) {
+      stmt.setObject(i + 1, params[i]);
+    }
+  }
+
+  /**
+   * @return number of tasks currently waiting (not yet running)
+   */
+  public int depth() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Snapshot of the queue metrics. Times are in milliseconds; maxima are since the queue was created.
+   *
+   * @return metrics as JSON
+   */
+  public JsonObject metrics() {
+    JsonObject depthByPriority = new JsonObject();
+    int depth;
+    lock.lock();
+    try {
+      depth = size;
+      for (Priority priority : Priority.values()) {
+        depthByPriority.put(priority.name(), lanes.get(priority.ordinal()).size());
+      }
+    } finally {
+      lock.unlock();
+    }
+    long startedCount = started.sum();
+    long executionCount = executions.sum();
+    return new JsonObject()
+      .put("name", name)
+      .put("capacity", capacity)
+      .put("overflowPolicy", overflowPolicy.name())
+      .put("depth", depth)
+      .put("depthByPriority", depthByPriority)
+      .put("submitted", submitted.sum())
+      .put("completed", completed.sum())
+      .put("failed", failed.sum())
+      .put("rejected", rejected.sum())
+      .put("batches", batches.sum())
+      .put("batchedStatements", batchedStatements.sum())
+      .put("avgWaitMs", startedCount == 0 ? 0.0 : waitNanos.sum() / 1e6 / startedCount)
+      .put("maxWaitMs", maxWaitNanos.get() / 1e6)
+      .put("avgExecMs", executionCount == 0 ? 0.0 : execNanos.sum() / 1e6 / executionCount)
+      .put("maxExecMs", maxExecNanos.get() / 1e6);
+  }
+
+  /**
+   * @return metrics of every queue created in this JVM, keyed by queue name
+   */
+  public static JsonObject allMetrics() {
+    JsonObject all = new JsonObject();
+    QUEUES.forEach((name, queue) -> all.put(name, queue.metrics()));
+    return all;
+  }
+
   /**
    * Shut down the queue and the thread pool.
-   * This method will stop accepting new tasks and will wait for the currently running tasks to finish.
+   * New tasks are rejected; tasks already queued are still executed before the threads exit.
    */
   public void shutdown() {
+    lock.lock();
+    try {
+      shutdown = true;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
     executorService.shutdown();
+    QUEUES.remove(name, this);
+  }
+
+  /**
+   * Wait for the worker threads to finish after {@link #shutdown()}.
+   *
+   * @return true if all threads finished within the timeout
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executorService.awaitTermination(timeout, unit);
+  }
+
+  // 队列中的一个任务：task 不为空时是普通任务，否则是一条 SQL 语句
+  private static final class Job<T> {
+    private final Callable<T> task;
+    private final String sql;
+    private final Object[] params;
+    private final Priority priority;
+    private final long enqueuedAt = System.nanoTime();
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    Job(Callable<T> task, String sql, Object[] params, Priority priority) {
+      this.task = task;
+      this.sql = sql;
+      this.params = params;
+      this.priority = priority;
+    }
   }
 }
@@ -1,25 +1,34 @@
 package Zephyr;
 
-import Zephyr.entities.AcceptedSequences;
 import Zephyr.entities.Service;
 import Zephyr.entities.Uploads;
+import Zephyr.repositories.KeywordRepository;
+import Zephyr.scanners.KeywordBulkImporter;
+import Zephyr.scanners.KeywordDictionary;
+import Zephyr.scanners.KeywordMatcher;
+import Zephyr.scanners.KeywordReportAggregator;
+import Zephyr.scanners.ParallelFileScanner;
+import Zephyr.scanners.ScanJobService;
+import Zephyr.scanners.ScanResultCache;
+import Zephyr.scanners.StreamingScan;
+import Zephyr.scanners.TextNormalizer;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.ext.web.FileUpload;
 import io.vertx.ext.web.RequestBody;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.handler.BodyHandler;
 import jakarta.persistence.EntityManager;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import org.hibernate.jpa.HibernateHints;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.*;
 
 import static Zephyr.MainVerticle.dbHelperInstance;
@@ -30,11 +39,39 @@ import static Zephyr.MainVerticle.dbHelperInstance;
  */
 public class JackRoutes {
 
+  private static final String STREAM_MODE = "stream";
+  private static final int MAX_JOB_STATUS_IDS = 100;
+
   private final Vertx vertx;
+  // 关键词字典快照，扫描时无锁读取，不访问数据库
+  private final KeywordDictionary keywordDictionary;
+  // 关键词举报在内存中聚合后批量写入
+  private final KeywordReportAggregator keywordReports;
+  private final KeywordBulkImporter keywordImporter;
+  // 流式扫描允许的最大字节数
+  private final long streamBodyLimit;
+  // 大文件扫描允许的最大字节数
+  private final long largeBodyLimit;
+  private final ParallelFileScanner largeFileScanner;
+  // 按内容哈希缓存的扫描结果
+  private final ScanResultCache scanCache = new ScanResultCache();
+  private final ScanJobService scanJobs;
 
   // 构造函数，接收 Vert.x 实例
   public JackRoutes(Vertx vertx) {
     this.vertx = vertx;
+    this.keywordDictionary = new KeywordDictionary(vertx);
+    // 首次加载完成前扫描接口由 requireDictionary 返回 503
+    this.keywordDictionary.start();
+    this.keywordReports = new KeywordReportAggregator(vertx, new KeywordRepository(dbHelper.getPool()), keywordDictionary::markDirty);
+    this.keywordReports.start();
+    this.keywordImporter = new KeywordBulkImporter(vertx);
+    Dotenv dotenv = Dotenv.load();
+    this.streamBodyLimit = Long.parseLong(dotenv.get("SCAN_STREAM_MAX_BYTES", "50000"));
+    this.largeBodyLimit = Long.parseLong(dotenv.get("SCAN_LARGE_MAX_BYTES", String.valueOf(64L << 20)));
+    this.largeFileScanner = new ParallelFileScanner(
+      Integer.parseInt(dotenv.get("SCAN_PARALLELISM", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+    this.scanJobs = new ScanJobService(vertx, keywordDictionary, scanCache, largeFileScanner);
   }
 
   // 创建并返回一个子路由器
@@ -48,7 +85,36 @@ public class JackRoutes {
     router.route("/info").handler(this::handleInfo);
 
     // test orm
-    router.route("/testOrm").handler(this::testOrm);
+    // Hibernate 操作在虚拟线程中执行，不阻塞事件循环
+    router.route("/testOrm").handler(BlockingRoute.of("testOrm", 2, this::testOrm));
+
+    // 关键词字典首次加载完成前所有扫描接口返回 503，空字典会把所有内容判为 unalarmed
+    router.post("/analyze/*").handler(this::requireDictionary);
+
+    // 流式扫描模式（?mode=stream），必须注册在 BodyHandler 之前，由处理器自行读取请求体
+    router.post("/analyze/text/uploads").handler(this::handleStreamingUpload);
+
+    // 批量导入关键词：请求体按行流式读取，同样不经过 BodyHandler
+    router.post("/submit/keyword/bulk").handler(this::handleKeywordImport);
+
+    // 异步扫描任务：提交后立即返回任务 ID，通过状态接口轮询结果
+    router.post("/analyze/jobs").handler(BodyHandler.create()
+      .setBodyLimit(largeBodyLimit)
+      .setDeleteUploadedFilesOnEnd(true)
+      .setHandleFileUploads(true)
+      .setUploadsDirectory(Paths.get("Zephyr", "uploads").toString())
+    ).handler(this::handleScanJobSubmit);
+    router.get("/analyze/jobs/:id").handler(this::handleScanJobStatus);
+    // 批量查询：/analyze/jobs?ids=a,b,c
+    router.get("/analyze/jobs").handler(this::handleScanJobStatuses);
+
+    // 大文件扫描：使用单独的 BodyHandler 放宽体积限制，落盘后内存映射并行扫描
+    router.post("/analyze/text/large").handler(BodyHandler.create()
+      .setBodyLimit(largeBodyLimit)
+      .setDeleteUploadedFilesOnEnd(true)
+      .setHandleFileUploads(true)
+      .setUploadsDirectory(Paths.get("Zephyr", "uploads").toString())
+    ).handler(this::handleLargeUpload);
 
     router.route().handler(BodyHandler.create()
       .setBodyLimit(50000)
@@ -125,54 +191,243 @@ public class JackRoutes {
       .end(response.encode());
   }
 
-  private void handleKeywordSubmit(RoutingContext ctx) {
-    // 获取请求体
-    JsonObject object = ctx.body().asJsonObject();
-    String keyword = object.getString("input").toLowerCase();
-    JsonObject updateBias = new JsonObject();
-
-    try (Connection connection = dbHelper.getDataSource().getConnection()) {
-      // 首先检查是否已经有匹配的记录
-      String selectQuery = "SELECT rate FROM accepted_sequences WHERE content = ?";
-      try (PreparedStatement selectStmt = connection.prepareStatement(selectQuery)) {
-        selectStmt.setString(1, keyword);
-        ResultSet rs = selectStmt.executeQuery();
-
-        if (rs.next()) {
-          // 如果记录已存在，更新 rate
-          int newRate = rs.getInt("rate") + 1;
-          String updateQuery = "UPDATE accepted_sequences SET rate = ?, last_updated_at = ? WHERE content = ?";
-          try (PreparedStatement updateStmt = connection.prepareStatement(updateQuery)) {
-            updateStmt.setInt(1, newRate);
-            updateStmt.setLong(2, System.currentTimeMillis());
-            updateStmt.setString(3, keyword);
-            updateStmt.executeUpdate();
-          }
-
-          updateBias.put("success", true)
-            .put("content", keyword)
-            .put("rate", newRate)
-            .put("timestamp", System.currentTimeMillis());
+  /**
+   * 判断请求是否需要跳过 BodyHandler，由路由自行以流的方式读取请求体。
+   *
+   * @param request HTTP 请求
+   * @return true 表示请求体不应被 BodyHandler 预先读取
+   */
+  public static boolean readsOwnBody(HttpServerRequest request) {
+    if (request.method() != HttpMethod.POST) {
+      return false;
+    }
+    String path = request.path();
+    return path.startsWith("/api/jack/analyze/text/large")
+      || path.startsWith("/api/jack/analyze/jobs")
+      || path.startsWith("/api/jack/submit/keyword/bulk")
+      || path.startsWith("/api/jack/analyze/text/uploads") && STREAM_MODE.equals(request.getParam("mode"));
+  }
+
+  //字典尚未加载时拒绝扫描请求
+  private void requireDictionary(RoutingContext ctx) {
+    if (keywordDictionary.current().version() > 0) {
+      ctx.next();
+      return;
+    }
+    ctx.response()
+      .setStatusCode(503)
+      .putHeader("Retry-After", "5")
+      .putHeader("Content-Type", "application/json")
+      .end(new JsonObject().put("success", false).put("message", "Keyword dictionary is not loaded yet").encode());
+  }
+
+  //大文件扫描：文件已由 BodyHandler 落盘，按行切块后在扫描线程池上并行匹配
+  private void handleLargeUpload(RoutingContext ctx) {
+    List<FileUpload> uploads = ctx.fileUploads();
+    if (uploads.size() != 1) {
+      ctx.fail(400);
+      return;
+    }
+    FileUpload upload = uploads.get(0);
+    if (!upload.fileName().endsWith(".txt") || !"text/plain".equals(upload.contentType())) {
+      ctx.fail(400);
+      return;
+    }
+    KeywordDictionary.Snapshot snapshot = keywordDictionary.current();
+    Path file = Paths.get(upload.uploadedFileName());
+    //先按内容哈希查缓存，未命中再并行扫描
+    vertx.executeBlocking(() -> scanCache.getOrScan(snapshot, file, f -> largeFileScanner.scan(f, snapshot.matcher())), false)
+      .onSuccess(lookup -> {
+        int[] counts = lookup.counts();
+        JsonObject response = new JsonObject()
+          .put("status", "uploaded")
+          .put("file", upload.fileName())
+          .put("size", upload.size())
+          .put("result", KeywordMatcher.isAlarmed(counts) ? "alarmed" : "unalarmed")
+          .put("score", counts[0])
+          .put("lines", counts[1])
+          .put("cached", lookup.cached())
+          .put("timestamp", System.currentTimeMillis());
+
+        ctx.response()
+          .putHeader("Content-Type", "application/json")
+          .end(response.encode());
+      })
+      .onFailure(ctx::fail);
+  }
+
+  //提交异步扫描任务：接受一个 txt 文件，或者直接把请求体作为文本
+  private void handleScanJobSubmit(RoutingContext ctx) {
+    List<FileUpload> uploads = ctx.fileUploads();
+    Future<String> submitted;
+    if (uploads.isEmpty()) {
+      if (ctx.body().length() <= 0) {
+        ctx.fail(400);
+        return;
+      }
+      submitted = scanJobs.submit(ctx.body().buffer());
+    } else {
+      FileUpload upload = uploads.get(0);
+      if (uploads.size() != 1 || !upload.fileName().endsWith(".txt") || !"text/plain".equals(upload.contentType())) {
+        ctx.fail(400);
+        return;
+      }
+      submitted = scanJobs.submit(Paths.get(upload.uploadedFileName()));
+    }
+    submitted
+      .onSuccess(jobId -> {
+        JsonObject response = new JsonObject()
+          .put("status", "queued")
+          .put("jobId", jobId)
+          .put("timestamp", System.currentTimeMillis());
+
+        ctx.response()
+          .setStatusCode(202)
+          .putHeader("Content-Type", "application/json")
+          .end(response.encode());
+      })
+      .onFailure(err -> {
+        if (err instanceof IllegalStateException) {
+          //队列已满
+          ctx.response()
+            .setStatusCode(503)
+            .putHeader("Content-Type", "application/json")
+            .end(new JsonObject().put("success", false).put("message", err.getMessage()).encode());
         } else {
-          // 如果记录不存在，插入新记录
-          String insertQuery = "INSERT INTO accepted_sequences (content, rate, created_at, last_updated_at) VALUES (?, ?, ?, ?)";
-          try (PreparedStatement insertStmt = connection.prepareStatement(insertQuery)) {
-            insertStmt.setString(1, keyword);
-            insertStmt.setInt(2, 1);
-            insertStmt.setLong(3, System.currentTimeMillis());
-            insertStmt.setLong(4, System.currentTimeMillis());
-            insertStmt.executeUpdate();
-          }
-
-          updateBias.put("success", true)
-            .put("content", keyword)
-            .put("rate", 1)
-            .put("timestamp", System.currentTimeMillis());
+          ctx.fail(err);
+        }
+      });
+  }
+
+  //查询异步扫描任务的状态和结果
+  private void handleScanJobStatus(RoutingContext ctx) {
+    scanJobs.status(ctx.pathParam("id"))
+      .onSuccess(state -> {
+        if (state == null) {
+          ctx.fail(404);
+          return;
         }
+        ctx.response()
+          .putHeader("Content-Type", "application/json")
+          .end(state.put("timestamp", System.currentTimeMillis()).encode());
+      })
+      .onFailure(ctx::fail);
+  }
+
+  //批量查询异步扫描任务的状态，所有任务一次往返读出
+  private void handleScanJobStatuses(RoutingContext ctx) {
+    String ids = ctx.request().getParam("ids");
+    List<String> jobIds = ids == null ? List.of()
+      : Arrays.stream(ids.split(",")).map(String::trim).filter(id -> !id.isEmpty()).distinct().toList();
+    if (jobIds.isEmpty() || jobIds.size() > MAX_JOB_STATUS_IDS) {
+      ctx.fail(400);
+      return;
+    }
+    scanJobs.statuses(jobIds)
+      .onSuccess(jobs -> ctx.response()
+        .putHeader("Content-Type", "application/json")
+        .end(new JsonObject()
+          .put("jobs", jobs)
+          .put("timestamp", System.currentTimeMillis())
+          .encode()))
+      .onFailure(ctx::fail);
+  }
+
+  //流式扫描：multipart 分块到达时直接送入自动机，最后一个字节到达时返回结果，不写 Zephyr/uploads 也不访问数据库
+  private void handleStreamingUpload(RoutingContext ctx) {
+    HttpServerRequest request = ctx.request();
+    if (!STREAM_MODE.equals(request.getParam("mode"))) {
+      ctx.next();
+      return;
+    }
+    KeywordMatcher matcher = keywordDictionary.current().matcher();
+    List<JsonObject> results = new ArrayList<>();
+    request.setExpectMultipart(true);
+    request.exceptionHandler(ctx::fail);
+    request.uploadHandler(upload -> {
+      String fileName = upload.filename();
+      //与普通上传相同的校验：只接受 .txt 纯文本，且只接受一个文件
+      if (!results.isEmpty() || !fileName.endsWith(".txt") || !"text/plain".equals(upload.contentType())) {
+        //丢弃剩余数据
+        upload.handler(chunk -> { });
+        if (!ctx.failed()) {
+          ctx.fail(400);
+        }
+        return;
+      }
+      StreamingScan scan = new StreamingScan(matcher);
+      JsonObject result = new JsonObject().put("file", fileName);
+      results.add(result);
+      upload.exceptionHandler(ctx::fail);
+      upload.handler(chunk -> {
+        if (ctx.failed()) {
+          return;
+        }
+        scan.feed(chunk);
+        if (scan.bytes() > streamBodyLimit) {
+          ctx.fail(413);
+        }
+      });
+      upload.endHandler(v -> {
+        int[] counts = scan.finish();
+        result.put("result", KeywordMatcher.isAlarmed(counts) ? "alarmed" : "unalarmed")
+          .put("score", counts[0])
+          .put("lines", counts[1]);
+      });
+    });
+    request.endHandler(v -> {
+      if (ctx.failed() || ctx.response().ended()) {
+        return;
       }
-    } catch (SQLException e) {
-      updateBias.put("success", false).put("message", "Database error: " + e.getMessage());
+      if (results.isEmpty()) {
+        ctx.fail(400);
+        return;
+      }
+      JsonObject response = results.get(0)
+        .put("status", "uploaded")
+        .put("timestamp", System.currentTimeMillis());
+
+      ctx.response()
+        .putHeader("Content-Type", "application/json")
+        .end(response.encode());
+    });
+  }
+
+  //批量导入关键词，全部写入后只刷新一次字典
+  private void handleKeywordImport(RoutingContext ctx) {
+    keywordImporter.importFrom(ctx.request())
+      .onSuccess(counts -> {
+        keywordDictionary.markDirty();
+        JsonObject response = counts
+          .put("success", true)
+          .put("status", "imported")
+          .put("timestamp", System.currentTimeMillis());
+
+        ctx.response()
+          .putHeader("Content-Type", "application/json")
+          .end(response.encode());
+      })
+      .onFailure(ctx::fail);
+  }
+
+  private void handleKeywordSubmit(RoutingContext ctx) {
+    // 获取请求体
+    JsonObject object = ctx.body().asJsonObject();
+    if (object == null || object.getString("input") == null) {
+      ctx.fail(400);
+      return;
     }
+    // 与扫描时一致的归一化（NFKC、全角转半角、大小写折叠），同一关键词的不同写法合并计数
+    String keyword = TextNormalizer.normalize(object.getString("input"));
+
+    // 只在内存中计数并立即确认，由聚合器定时批量写入数据库
+    long pendingReports = keywordReports.report(keyword);
+    JsonObject updateBias = new JsonObject()
+      .put("success", true)
+      .put("status", "uploaded")
+      .put("content", keyword)
+      .put("pending", pendingReports)
+      .put("timestamp", System.currentTimeMillis());
 
     // 将结果返回给客户端
     ctx.response()
@@ -182,6 +437,10 @@ public class JackRoutes {
 
   //关键词检测器 A naive approach of a text-based fraud detector.
   private void handleFileUpload(RoutingContext ctx, FileUpload u){
+    if (keywordDictionary.current().version() == 0) {
+      ctx.fail(503);
+      return;
+    }
     Path path = Paths.get("Zephyr", "uploads", u.uploadedFileName());
     EntityManager entityManager = dbHelperInstance.getEntityManager();
     try {
@@ -225,7 +484,16 @@ public class JackRoutes {
       //如果列表中有指定路径元素，说明提取正确
       if(upload.getFilePath().equals(path.toString())) {
         //发现可疑关键词,且全文平均权重超过指定阈值(10)，返回alarmed状态
-        if (processFile(upload.getFilePath())[0]/processFile(upload.getFilePath())[1]>=10) {
+        KeywordDictionary.Snapshot snapshot = keywordDictionary.current();
+        int[] result;
+        try {
+          //相同内容在同一版本字典下直接复用缓存的结果
+          result = scanCache.getOrScan(snapshot, Paths.get(upload.getFilePath()),
+            f -> processFile(f.toString(), snapshot.matcher())).counts();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        if (KeywordMatcher.isAlarmed(result)) {
           JsonObject response = new JsonObject()
             .put("status", "uploaded")
             .put("dir", path.toString())
@@ -257,38 +525,13 @@ public class JackRoutes {
     entityManager.close();
   }
 
-  private int[] processFile(String path) {
-    int res = 0;
-    int lines = 0;
-    List<AcceptedSequences> acceptedSequences;
-    try {
-      EntityManager entityManager = dbHelperInstance.getEntityManager();
-      //提取所有已知的可疑关键词
-      acceptedSequences = entityManager
-        .createQuery("SELECT a FROM AcceptedSequences a", AcceptedSequences.class)
-        .getResultList();
-      entityManager.close();
-    }
-    catch (Exception e){
-      throw new RuntimeException(e);
-    }
-    String line;
-    try{
-      FileReader reader = new FileReader(path);
-      BufferedReader br = new BufferedReader(reader);
-      while((line = br.readLine())!=null){
-        for (AcceptedSequences sequence: acceptedSequences){
-          if (line.contains(sequence.getList().getFirst())){
-            //全文任何部分发现关键词，视为检测到关键词
-            res+=sequence.getRate();
-          }
-        }
-        lines++;
-      }
+  private int[] processFile(String path, KeywordMatcher matcher) {
+    //单次遍历全文，直接在 UTF-8 字节上同时匹配所有关键词
+    try (FileChannel channel = FileChannel.open(Paths.get(path))) {
+      return matcher.scan(channel);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    return new int[]{res, lines};
   }
 
   // orm test
@@ -338,7 +581,10 @@ public class JackRoutes {
     // 新EntityManager
     entityManager = dbHelperInstance.getEntityManager();
     // 从数据库中查询所有服务
-    List<Service> services = entityManager.createQuery("SELECT s FROM Service s", Service.class).getResultList();
+    List<Service> services = entityManager.createQuery("SELECT s FROM Service s", Service.class)
+      // 查询结果和实体都走二级缓存，重复请求不再访问数据库
+      .setHint(HibernateHints.HINT_CACHEABLE, true)
+      .getResultList();
     JsonObject response = new JsonObject()
       .put("status", "ok")
       .put("message", "Test ORM Success")
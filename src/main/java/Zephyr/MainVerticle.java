@@ -1,6 +1,12 @@
 package Zephyr;
 
+import Zephyr.caches.AsyncValKey;
+import Zephyr.caches.PrefetchBuffer;
+import Zephyr.caches.RefreshingCache;
+import Zephyr.caches.StreamQueue;
+import Zephyr.caches.TieredCache;
 import Zephyr.caches.ValKeyManager;
+import io.github.cdimascio.dotenv.Dotenv;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
@@ -12,10 +18,6 @@ import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 
 import java.nio.file.Paths;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 
 /**
  * Main Verticle for the application
@@ -24,9 +26,11 @@ import java.sql.SQLException;
 public class MainVerticle extends AbstractVerticle {
   private static final Logger logger = LoggerFactory.getLogger(MainVerticle.class);
   public static dbHelper dbHelperInstance;
+  private AsyncValKey valKey;
   @Override
   public void start(Promise<Void> startPromise) {
     logger.info("Starting MainVerticle initialization...");
+    valKey = new AsyncValKey(vertx);
 
     // 初始化 dbHelper 和 ValKey
     initializeServices()
@@ -53,17 +57,23 @@ public class MainVerticle extends AbstractVerticle {
     Promise<Void> promise = Promise.promise();
 
     dbHelperInstance = new dbHelper(vertx);
-    ValKeyManager valKeyManager = ValKeyManager.getInstance();
-
-    // 测试 ValKey 连接
-    valKeyManager.set("test", "test");
-    String test = valKeyManager.get("test");
-    if (!"test".equals(test)) {
-      logger.error("Failed to connect to ValKey. Value mismatch.");
-      promise.fail("Failed to connect to ValKey");
-    } else {
-      logger.info("ValKey initialized and verified successfully.");
-    }
+
+    // 测试 ValKey 连接（在 ValKey 线程池中执行，首次调用时建立连接）。
+    // 包含首次连接和 TLS 握手，使用单独的、更长的超时时间 VALKEY_STARTUP_TIMEOUT_MS
+    long startupTimeoutMs = Long.parseLong(Dotenv.load().get("VALKEY_STARTUP_TIMEOUT_MS", "10000"));
+    Future<Void> valKeyReady = valKey.execute(() -> {
+        ValKeyManager valKeyManager = ValKeyManager.getInstance();
+        valKeyManager.set("test", "test");
+        return valKeyManager.get("test");
+      }, startupTimeoutMs)
+      .compose(test -> {
+        if (!"test".equals(test)) {
+          logger.error("Failed to connect to ValKey. Value mismatch.");
+          return Future.failedFuture("Failed to connect to ValKey");
+        }
+        logger.info("ValKey initialized and verified successfully.");
+        return Future.succeededFuture();
+      });
 
     // 初始化数据库
     dbHelperInstance.init(ar -> {
@@ -76,7 +86,7 @@ public class MainVerticle extends AbstractVerticle {
       }
     });
 
-    return promise.future();
+    return Future.all(valKeyReady, promise.future()).mapEmpty();
   }
 
   private Router setupHttpServer() {
@@ -87,18 +97,27 @@ public class MainVerticle extends AbstractVerticle {
     router.route().handler(ctx -> {
       String requestId = IdGenerator.generateRequestId();
       ctx.response().putHeader("X-Request-Id", requestId);
+      // 阻塞路由在虚拟线程中把请求 ID 写入日志上下文
+      ctx.put(BlockingRoute.REQUEST_ID, requestId);
       logger.debug("Request ID generated: {}");
       ctx.next();
     });
 
     // 添加 BodyHandler
-    router.route().handler(BodyHandler.create()
+    BodyHandler bodyHandler = BodyHandler.create()
       .setBodyLimit(50_000)
       .setDeleteUploadedFilesOnEnd(true)
       .setHandleFileUploads(true)
       .setUploadsDirectory(Paths.get("Zephyr", "uploads").toString())
-      .setMergeFormAttributes(true)
-    );
+      .setMergeFormAttributes(true);
+    router.route().handler(ctx -> {
+      // 流式处理的请求由子路由自行读取请求体
+      if (JackRoutes.readsOwnBody(ctx.request())) {
+        ctx.next();
+        return;
+      }
+      bodyHandler.handle(ctx);
+    });
 
     // 配置子路由
     router.route("/api/jack/*").subRouter(new JackRoutes(vertx).getSubRouter());
@@ -115,40 +134,52 @@ public class MainVerticle extends AbstractVerticle {
   }
 
   private void handleHealthCheck(RoutingContext ctx) {
-    JsonObject responseObject = new JsonObject();
+    // 检查数据库状态（非阻塞）
+    Future<JsonObject> dbStatus = dbHelper.getPool().query("SELECT 1").execute()
+      .map(rows -> rows.size() == 1 && rows.iterator().next().getInteger(0) == 1
+        ? new JsonObject().put("success", true).put("message", "Database is healthy.")
+        : new JsonObject().put("success", false).put("message", "Unexpected query result."))
+      .otherwise(e -> {
+        logger.warn("Database health check failed.", e);
+        return new JsonObject().put("success", false).put("message", "Database connection failed: " + e.getMessage());
+      });
 
-    // 检查数据库状态
-    JsonObject dbStatus = new JsonObject();
-    try (Connection connection = dbHelper.getDataSource().getConnection()) {
-      try (PreparedStatement stmt = connection.prepareStatement("SELECT 1")) {
-        ResultSet rs = stmt.executeQuery();
-        if (rs.next() && rs.getInt(1) == 1) {
-          dbStatus.put("success", true).put("message", "Database is healthy.");
-        } else {
-          dbStatus.put("success", false).put("message", "Unexpected query result.");
-        }
-      }
-    } catch (SQLException e) {
-      dbStatus.put("success", false).put("message", "Database connection failed: " + e.getMessage());
-      logger.warn("Database health check failed.", e);
-    }
-
-    // 检查 ValKey 状态
-    JsonObject valKeyStatus = new JsonObject();
-    ValKeyManager valKeyManager = ValKeyManager.getInstance();
+    // 检查 ValKey 状态（写入、读回、删除在同一次提交中完成，有超时，不阻塞事件循环）
     String key = "health@" + System.currentTimeMillis();
-    valKeyManager.set(key, "healthy");
-    if ("healthy".equals(valKeyManager.get(key))) {
-      valKeyStatus.put("success", true).put("message", "ValKey is healthy.");
-      valKeyManager.del(key);
-    } else {
-      valKeyStatus.put("success", false).put("message", "ValKey is not accessible.");
-      logger.warn("ValKey health check failed.");
-    }
+    Future<JsonObject> valKeyStatus = valKey.execute(() -> {
+        ValKeyManager valKeyManager = ValKeyManager.getInstance();
+        valKeyManager.set(key, "healthy");
+        boolean healthy = "healthy".equals(valKeyManager.get(key));
+        valKeyManager.del(key);
+        return healthy;
+      })
+      .map(healthy -> healthy
+        ? new JsonObject().put("success", true).put("message", "ValKey is healthy.")
+        : new JsonObject().put("success", false).put("message", "ValKey is not accessible."))
+      .otherwise(e -> new JsonObject().put("success", false).put("message", "ValKey check failed: " + e))
+      .onSuccess(status -> {
+        if (!status.getBoolean("success")) {
+          logger.warn("ValKey health check failed.");
+        }
+      });
+
+    Future.all(dbStatus, valKeyStatus)
+      .onSuccess(v -> respondHealth(ctx, dbStatus.result(), valKeyStatus.result()));
+  }
+
+  private void respondHealth(RoutingContext ctx, JsonObject dbStatus, JsonObject valKeyStatus) {
+    JsonObject responseObject = new JsonObject();
 
     responseObject.put("status", "ok")
       .put("database", dbStatus)
       .put("valkey", valKeyStatus)
+      .put("pool", dbHelper.getPoolMetrics())
+      .put("hibernateCache", dbHelper.getCacheStatistics())
+      .put("caches", TieredCache.allMetrics())
+      .put("loaders", RefreshingCache.allMetrics())
+      .put("buffers", PrefetchBuffer.allMetrics())
+      .put("streams", StreamQueue.allMetrics())
+      .put("queues", DatabaseQueue.allMetrics())
       .put("timestamp", System.currentTimeMillis());
 
     ctx.response().putHeader("Content-Type", "application/json").end(responseObject.encode());
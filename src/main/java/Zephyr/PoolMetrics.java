@@ -0,0 +1,84 @@
+package Zephyr;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hikari 连接池指标：获取连接的等待时间、连接占用时间、超时次数，以及当前活跃/空闲/等待中的连接数。
+ * 通过 {@link com.zaxxer.hikari.HikariConfig#setMetricsTrackerFactory} 注册，{@link #snapshot()} 输出到 /healthz。
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+  private final LongAdder acquired = new LongAdder();
+  private final LongAdder acquireNanos = new LongAdder();
+  private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder released = new LongAdder();
+  private final LongAdder usageMillis = new LongAdder();
+  private final LongAccumulator maxUsageMillis = new LongAccumulator(Math::max, 0);
+  private final LongAdder created = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private volatile String poolName;
+  private volatile PoolStats poolStats;
+
+  @Override
+  public IMetricsTracker create(String poolName, PoolStats poolStats) {
+    this.poolName = poolName;
+    this.poolStats = poolStats;
+    return new IMetricsTracker() {
+      @Override
+      public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        created.increment();
+      }
+
+      @Override
+      public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquired.increment();
+        acquireNanos.add(elapsedAcquiredNanos);
+        maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+      }
+
+      @Override
+      public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        released.increment();
+        usageMillis.add(elapsedBorrowedMillis);
+        maxUsageMillis.accumulate(elapsedBorrowedMillis);
+      }
+
+      @Override
+      public void recordConnectionTimeout() {
+        timeouts.increment();
+      }
+    };
+  }
+
+  /**
+   * @return 当前连接数和累计的等待、占用统计，时间单位为毫秒
+   */
+  public JsonObject snapshot() {
+    JsonObject json = new JsonObject().put("pool", poolName);
+    PoolStats stats = poolStats;
+    if (stats != null) {
+      json.put("active", stats.getActiveConnections())
+        .put("idle", stats.getIdleConnections())
+        .put("total", stats.getTotalConnections())
+        .put("pending", stats.getPendingThreads())
+        .put("max", stats.getMaxConnections());
+    }
+    long acquiredCount = acquired.sum();
+    long releasedCount = released.sum();
+    return json
+      .put("acquired", acquiredCount)
+      .put("avgAcquireMs", acquiredCount == 0 ? 0.0 : acquireNanos.sum() / 1e6 / acquiredCount)
+      .put("maxAcquireMs", TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get()) / 1e3)
+      .put("avgUsageMs", releasedCount == 0 ? 0.0 : (double) usageMillis.sum() / releasedCount)
+      .put("maxUsageMs", maxUsageMillis.get())
+      .put("created", created.sum())
+      .put("timeouts", timeouts.sum());
+  }
+}
@@ -4,6 +4,7 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,10 +30,10 @@ public class YukiRoutes {
     router.route("/healthz").handler(this::handleHealthz);
 
     // 定义 "/api/v1/status" 路径
-    router.route("/status").handler(this::handleStatus);
+    router.route("/status").handler(BlockingRoute.of("status", 4, this::handleStatus));
 
     // 定义 "/api/v1/relay" 路径
-    router.route("/relay").handler(this::testRelay);
+    router.route("/relay").handler(BlockingRoute.of("relay", 1000, this::testRelay));
 
     return router;
   }
@@ -49,14 +50,11 @@ public class YukiRoutes {
       .end(response.encode());
   }
 
-  // 处理 "/api/v1/status" 路径的逻辑
+  // 处理 "/api/v1/status" 路径的逻辑，在虚拟线程中执行，查询失败时由 BlockingRoute 返回 500
   private void handleStatus(RoutingContext ctx) {
-    EntityManagerFactory entityManager = dbHelper.getEntityManagerFactory();
-    try {
-      entityManager.createEntityManager().createNativeQuery("SELECT 1").getSingleResult();
-    } catch (Exception e) {
-      ctx.fail(500);
-      throw new RuntimeException(e);
+    EntityManagerFactory entityManagerFactory = dbHelper.getEntityManagerFactory();
+    try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+      entityManager.createNativeQuery("SELECT 1").getSingleResult();
     }
     log.info("app's status is good!"+System.currentTimeMillis());
     JsonObject response = new JsonObject()
@@ -69,21 +67,16 @@ public class YukiRoutes {
       .end(response.encode());
   }
 
-  // test relay route
-  public void testRelay(RoutingContext ctx) {
+  // test relay route，在虚拟线程中等待，不占用事件循环
+  public void testRelay(RoutingContext ctx) throws InterruptedException {
     // wait for 2 secs
-    try {
-      Thread.sleep(2000);
-      JsonObject response = new JsonObject()
-        .put("status", "ok")
-        .put("timestamp", System.currentTimeMillis());
-      ctx.response()
-        .putHeader("Content-Type", "application/json")
-        .end(response.encode());
-    } catch (InterruptedException ex) {
-      ctx.fail(500);
-      throw new RuntimeException(ex);
-    }
+    Thread.sleep(2000);
+    JsonObject response = new JsonObject()
+      .put("status", "ok")
+      .put("timestamp", System.currentTimeMillis());
+    ctx.response()
+      .putHeader("Content-Type", "application/json")
+      .end(response.encode());
   }
 
 }
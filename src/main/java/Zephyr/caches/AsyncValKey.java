@@ -0,0 +1,116 @@
+package Zephyr.caches;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ValKey 的异步访问：命令在专用的 I/O 线程池中通过 {@link ValKeyManager} 执行，结果以 Vert.x {@link Future} 返回，
+ * 回调回到调用方的 Context，可以直接在事件循环中使用。
+ * <p>
+ * 线程数为 VALKEY_ASYNC_WORKERS（默认 8，与 JedisPooled 默认的最大连接数一致），排队上限为 VALKEY_ASYNC_QUEUE，队列满时立即失败。
+ * 每条命令的超时为 VALKEY_COMMAND_TIMEOUT_MS，超时后 Future 以 {@link java.util.concurrent.TimeoutException} 失败，
+ * 已经发出的命令不会被取消。命令本身的错误由 {@link ValKeyManager} 记录，读操作返回 null。
+ */
+public class AsyncValKey {
+
+  private static final Dotenv dotenv = Dotenv.load();
+  private static final long TIMEOUT_MS = Long.parseLong(dotenv.get("VALKEY_COMMAND_TIMEOUT_MS", "1000"));
+  private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+  private final Vertx vertx;
+
+  public AsyncValKey(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  public Future<String> get(String key) {
+    return execute(() -> ValKeyManager.getInstance().get(key));
+  }
+
+  public Future<List<String>> mget(List<String> keys) {
+    return execute(() -> ValKeyManager.getInstance().mget(keys));
+  }
+
+  public Future<Void> set(String key, String value) {
+    return execute(() -> {
+      ValKeyManager.getInstance().set(key, value);
+      return null;
+    });
+  }
+
+  public Future<Void> setWithExpire(String key, String value, int seconds) {
+    return execute(() -> {
+      ValKeyManager.getInstance().setWithExpire(key, value, seconds);
+      return null;
+    });
+  }
+
+  public Future<Void> del(String key) {
+    return execute(() -> {
+      ValKeyManager.getInstance().del(key);
+      return null;
+    });
+  }
+
+  /**
+   * 在 I/O 线程池中执行任意的阻塞 ValKey 操作，例如多条命令组成的检查或 {@link Tasks} 的读写。
+   *
+   * @param command 阻塞操作
+   * @param <T>     结果类型
+   * @return 操作结果；超时、排队已满或操作抛出异常时失败
+   */
+  public <T> Future<T> execute(Callable<T> command) {
+    return execute(command, TIMEOUT_MS);
+  }
+
+  /**
+   * 使用指定超时时间执行阻塞 ValKey 操作，例如启动时包含首次建立连接和 TLS 握手的检查。
+   *
+   * @param command   阻塞操作
+   * @param timeoutMs 超时时间（毫秒）
+   * @param <T>       结果类型
+   * @return 操作结果；超时、排队已满或操作抛出异常时失败
+   */
+  public <T> Future<T> execute(Callable<T> command, long timeoutMs) {
+    Context context = vertx.getOrCreateContext();
+    CompletableFuture<T> result;
+    try {
+      result = CompletableFuture.supplyAsync(() -> {
+        try {
+          return command.call();
+        } catch (Exception e) {
+          throw new CompletionException(e);
+        }
+      }, EXECUTOR);
+    } catch (RejectedExecutionException e) {
+      return Future.failedFuture(e);
+    }
+    return Future.fromCompletionStage(result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS), context);
+  }
+
+  private static ThreadPoolExecutor createExecutor() {
+    int workers = Integer.parseInt(dotenv.get("VALKEY_ASYNC_WORKERS", "8"));
+    AtomicInteger threadNumber = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(Integer.parseInt(dotenv.get("VALKEY_ASYNC_QUEUE", "10000"))),
+      runnable -> {
+        Thread thread = new Thread(runnable, "zephyr-valkey-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
@@ -0,0 +1,167 @@
+package Zephyr.caches;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 预取缓冲区，用在每次调用都返回不同结果的上游接口前面（例如随机诗词），请求直接从内存中取值。
+ * <ul>
+ *   <li>环形数组保存预取的值，{@link #take} 为 O(1)，每个值只返回一次；</li>
+ *   <li>剩余数量不超过低水位时在后台补充到满，同时进行的上游请求不超过 concurrency；</li>
+ *   <li>缓冲区为空时才直接请求上游，并触发补充；</li>
+ *   <li>补充失败后按 1 秒起、最长 30 秒的间隔退避，期间不再访问上游。</li>
+ * </ul>
+ * 缓冲区不加锁，所有方法都必须在创建它的 Vert.x 上下文（事件循环）中调用。
+ *
+ * @param <T> 值的类型
+ */
+public class PrefetchBuffer<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(PrefetchBuffer.class);
+  private static final long MIN_BACKOFF_MS = 1000;
+  private static final long MAX_BACKOFF_MS = 30000;
+  private static final Map<String, PrefetchBuffer<?>> BUFFERS = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final String name;
+  private final Supplier<Future<T>> fetcher;
+  private final Object[] ring;
+  private final int lowWater;
+  private final int concurrency;
+  private int head;
+  private int size;
+  private int inFlight;
+  private long backoffMs;
+  private boolean backingOff;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder fetched = new LongAdder();
+  private final LongAdder fetchFailures = new LongAdder();
+
+  /**
+   * 创建后立即开始填充。
+   *
+   * @param vertx       Vert.x 实例
+   * @param name        名称，用于日志和指标
+   * @param capacity    缓冲区容量
+   * @param lowWater    剩余数量不超过该值时开始补充
+   * @param concurrency 同时进行的最大上游请求数
+   * @param fetcher     从上游获取一个值
+   */
+  public PrefetchBuffer(Vertx vertx, String name, int capacity, int lowWater, int concurrency, Supplier<Future<T>> fetcher) {
+    if (capacity <= 0 || lowWater < 0 || lowWater >= capacity || concurrency <= 0) {
+      throw new IllegalArgumentException("Invalid prefetch buffer settings for " + name);
+    }
+    this.vertx = vertx;
+    this.name = name;
+    this.fetcher = fetcher;
+    this.ring = new Object[capacity];
+    this.lowWater = lowWater;
+    this.concurrency = concurrency;
+    BUFFERS.put(name, this);
+    refill();
+  }
+
+  /**
+   * 取出一个值；缓冲区为空时直接请求上游。
+   *
+   * @return 值，上游请求失败时失败
+   */
+  @SuppressWarnings("unchecked")
+  public Future<T> take() {
+    if (size == 0) {
+      misses.increment();
+      refill();
+      return fetch();
+    }
+    T value = (T) ring[head];
+    ring[head] = null;
+    head = (head + 1) % ring.length;
+    size--;
+    hits.increment();
+    if (size <= lowWater) {
+      refill();
+    }
+    return Future.succeededFuture(value);
+  }
+
+  // 补充到满：已在进行的请求也计入，避免超出容量
+  private void refill() {
+    // 上游同步失败时会在循环中进入退避，所以每轮都要检查
+    while (!backingOff && inFlight < concurrency && size + inFlight < ring.length) {
+      inFlight++;
+      fetch().onComplete(ar -> {
+        inFlight--;
+        if (ar.succeeded()) {
+          backoffMs = 0;
+          offer(ar.result());
+          refill();
+        } else {
+          fetchFailures.increment();
+          backOff(ar.cause());
+        }
+      });
+    }
+  }
+
+  private void offer(T value) {
+    if (size == ring.length) {
+      return;
+    }
+    ring[(head + size) % ring.length] = value;
+    size++;
+  }
+
+  private void backOff(Throwable cause) {
+    if (backingOff) {
+      return;
+    }
+    backoffMs = backoffMs == 0 ? MIN_BACKOFF_MS : Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    backingOff = true;
+    log.warn("Prefetch buffer {} failed to fetch, retrying in {} ms: {}", name, backoffMs, cause.getMessage());
+    vertx.setTimer(backoffMs, id -> {
+      backingOff = false;
+      refill();
+    });
+  }
+
+  private Future<T> fetch() {
+    try {
+      return fetcher.get().onSuccess(value -> fetched.increment());
+    } catch (RuntimeException e) {
+      return Future.failedFuture(e);
+    }
+  }
+
+  /**
+   * @return 当前数量、容量、命中和未命中次数、上游请求次数
+   */
+  public JsonObject metrics() {
+    return new JsonObject()
+      .put("size", size)
+      .put("capacity", ring.length)
+      .put("inFlight", inFlight)
+      .put("hits", hits.sum())
+      .put("misses", misses.sum())
+      .put("fetched", fetched.sum())
+      .put("fetchFailures", fetchFailures.sum());
+  }
+
+  /**
+   * @return 所有预取缓冲区的指标，键为名称
+   */
+  public static JsonObject allMetrics() {
+    JsonObject json = new JsonObject();
+    BUFFERS.forEach((name, buffer) -> json.put(name, buffer.metrics()));
+    return json;
+  }
+}
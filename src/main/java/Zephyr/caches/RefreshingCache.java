@@ -0,0 +1,333 @@
+package Zephyr.caches;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 防击穿的加载缓存，用在上游接口前面，值存放在 {@link TieredCache} 中。
+ * <ul>
+ *   <li>单飞：本实例内同一个键同时只有一次加载，并发的未命中共享同一个 {@link Future}；</li>
+ *   <li>跨实例：加载前用 ValKey 的 SET NX 加短锁，没抢到锁的实例等待持锁实例写入结果，超时后才自己加载；</li>
+ *   <li>过期后再验证：超过 fresh 但未超过 fresh + stale 的值直接返回，同时在后台刷新一次；</li>
+ *   <li>负缓存：加载失败的结果保存 negative 时长，期间同一个键直接失败，不再访问上游。
+ *   已有旧值时刷新失败不会覆盖旧值。</li>
+ * </ul>
+ * 所有方法都可以在事件循环中调用，ValKey 访问通过 {@link AsyncValKey} 进行；ValKey 不可用时不等待锁，退化为本实例内的单飞。
+ * 锁的值为本实例的标识，只有值仍然相同时才释放，加载超过锁的过期时间也不会删掉其他实例的锁。
+ * 锁的过期时间为 CACHE_LOCK_MS（默认 5000），应当略大于上游的超时时间。
+ */
+public class RefreshingCache {
+
+  private static final Logger log = LoggerFactory.getLogger(RefreshingCache.class);
+  private static final String NODE_ID = UUID.randomUUID().toString();
+  private static final long LOCK_POLL_MS = 100;
+  private static final Map<String, RefreshingCache> CACHES = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final Store store;
+  private final String lockPrefix;
+  private final long lockMs;
+  private final long freshMs;
+  private final long staleMs;
+  private final long negativeMs;
+  private final Map<String, Future<Entry>> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder staleServed = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder lockWaits = new LongAdder();
+
+  /**
+   * @param vertx      Vert.x 实例
+   * @param namespace  {@link TieredCache} 命名空间
+   * @param fresh      值被视为最新的时长
+   * @param stale      过期后仍可返回旧值的时长
+   * @param negative   加载失败结果的缓存时长
+   * @param maxEntries L1 最大条目数
+   */
+  public RefreshingCache(Vertx vertx, String namespace, Duration fresh, Duration stale, Duration negative, long maxEntries) {
+    this(vertx, namespace, fresh, stale, negative,
+      new TieredStore(vertx, TieredCache.namespace(namespace, fresh.plus(stale), maxEntries)),
+      Long.parseLong(Dotenv.load().get("CACHE_LOCK_MS", "5000")));
+  }
+
+  RefreshingCache(Vertx vertx, String namespace, Duration fresh, Duration stale, Duration negative, Store store, long lockMs) {
+    this.vertx = vertx;
+    this.store = store;
+    this.lockPrefix = "zephyr:lock:" + namespace + ":";
+    this.lockMs = lockMs;
+    this.freshMs = fresh.toMillis();
+    this.staleMs = stale.toMillis();
+    this.negativeMs = negative.toMillis();
+    CACHES.put(namespace, this);
+  }
+
+  /**
+   * 读取缓存，必要时通过 loader 加载。
+   *
+   * @param key    键
+   * @param loader 从上游加载值
+   * @return 值和命中状态；加载失败或命中负缓存时失败
+   */
+  public Future<Result> get(String key, Supplier<Future<String>> loader) {
+    String local = store.getLocal(key);
+    Future<Entry> cached = local != null
+      ? Future.succeededFuture(Entry.decode(local))
+      : store.get(key).map(Entry::decode)
+        // ValKey 不可用时当作未命中
+        .otherwise(e -> null);
+    return cached.compose(entry -> resolve(key, entry, loader));
+  }
+
+  private Future<Result> resolve(String key, Entry entry, Supplier<Future<String>> loader) {
+    long age = entry == null ? Long.MAX_VALUE : System.currentTimeMillis() - entry.loadedAt();
+    if (entry != null && entry.error() != null) {
+      if (age < negativeMs) {
+        negativeHits.increment();
+        return Future.failedFuture(new LoadFailedException(entry.error(), true, negativeMs - age));
+      }
+      entry = null;
+    }
+    if (entry != null && age < freshMs) {
+      return Future.succeededFuture(new Result(entry.value(), Status.HIT, entry.loadedAt()));
+    }
+    if (entry != null && age < freshMs + staleMs) {
+      staleServed.increment();
+      load(key, loader, true);
+      return Future.succeededFuture(new Result(entry.value(), Status.STALE, entry.loadedAt()));
+    }
+    return load(key, loader, false).compose(loaded -> loaded.error() != null
+      ? Future.failedFuture(new LoadFailedException(loaded.error(), false, negativeMs))
+      : Future.succeededFuture(new Result(loaded.value(), Status.MISS, loaded.loadedAt())));
+  }
+
+  // 单飞：同一个键已经在加载时直接复用
+  private Future<Entry> load(String key, Supplier<Future<String>> loader, boolean hasStale) {
+    Promise<Entry> promise = Promise.promise();
+    Future<Entry> existing = inFlight.putIfAbsent(key, promise.future());
+    if (existing != null) {
+      coalesced.increment();
+      return existing;
+    }
+    String lockKey = lockPrefix + key;
+    store.tryLock(lockKey, NODE_ID, lockMs)
+      .transform(ar -> {
+        if (ar.failed()) {
+          // ValKey 不可用时不再协调，直接加载
+          return loadAndStore(key, loader, hasStale);
+        }
+        if (ar.result()) {
+          return loadAndStore(key, loader, hasStale).onComplete(done -> store.unlock(lockKey, NODE_ID));
+        }
+        lockWaits.increment();
+        return awaitOtherNode(key, loader, hasStale, System.currentTimeMillis() + lockMs);
+      })
+      .onComplete(ar -> {
+        inFlight.remove(key);
+        promise.handle(ar);
+      });
+    return promise.future();
+  }
+
+  // 其他实例持有锁：轮询 ValKey 等它写入新值，锁过期仍没有结果时自己加载
+  private Future<Entry> awaitOtherNode(String key, Supplier<Future<String>> loader, boolean hasStale, long deadline) {
+    return vertx.timer(LOCK_POLL_MS)
+      .compose(v -> store.get(key).map(Entry::decode).otherwise(e -> null))
+      .compose(entry -> {
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt() < freshMs) {
+          return Future.succeededFuture(entry);
+        }
+        if (System.currentTimeMillis() >= deadline) {
+          return loadAndStore(key, loader, hasStale);
+        }
+        return awaitOtherNode(key, loader, hasStale, deadline);
+      });
+  }
+
+  private Future<Entry> loadAndStore(String key, Supplier<Future<String>> loader, boolean hasStale) {
+    loads.increment();
+    Future<String> loading;
+    try {
+      loading = loader.get();
+    } catch (RuntimeException e) {
+      loading = Future.failedFuture(e);
+    }
+    return loading.transform(ar -> {
+      Entry entry;
+      if (ar.succeeded()) {
+        entry = new Entry(ar.result(), null, System.currentTimeMillis());
+      } else {
+        loadFailures.increment();
+        log.warn("Loading {} failed", key, ar.cause());
+        entry = new Entry(null, String.valueOf(ar.cause().getMessage()), System.currentTimeMillis());
+        if (hasStale) {
+          // 保留旧值，下一次请求会再尝试刷新
+          return Future.succeededFuture(entry);
+        }
+      }
+      store.put(key, entry.encode());
+      return Future.succeededFuture(entry);
+    });
+  }
+
+  /**
+   * @return 加载、合并、返回旧值、负缓存命中和等待锁的次数
+   */
+  public JsonObject metrics() {
+    return new JsonObject()
+      .put("loads", loads.sum())
+      .put("loadFailures", loadFailures.sum())
+      .put("coalesced", coalesced.sum())
+      .put("staleServed", staleServed.sum())
+      .put("negativeHits", negativeHits.sum())
+      .put("lockWaits", lockWaits.sum())
+      .put("inFlight", inFlight.size());
+  }
+
+  /**
+   * @return 所有加载缓存的指标，键为命名空间
+   */
+  public static JsonObject allMetrics() {
+    JsonObject json = new JsonObject();
+    CACHES.forEach((name, cache) -> json.put(name, cache.metrics()));
+    return json;
+  }
+
+  /**
+   * 命中状态。
+   */
+  public enum Status {
+    /** 缓存中的值仍在有效期内 */
+    HIT,
+    /** 返回了过期的旧值，后台正在刷新 */
+    STALE,
+    /** 本次请求等待了加载 */
+    MISS
+  }
+
+  /**
+   * @param value    值
+   * @param status   命中状态
+   * @param loadedAt 值从上游加载的时间（毫秒）
+   */
+  public record Result(String value, Status status, long loadedAt) {
+  }
+
+  /**
+   * 上游加载失败，或命中了失败结果的负缓存。
+   */
+  public static class LoadFailedException extends RuntimeException {
+    private final boolean negativeHit;
+    private final long retryAfterMs;
+
+    /**
+     * @param message      上游的错误信息
+     * @param negativeHit  是否来自负缓存（本次没有访问上游）
+     * @param retryAfterMs 负缓存到期、会再次访问上游的剩余毫秒数
+     */
+    public LoadFailedException(String message, boolean negativeHit, long retryAfterMs) {
+      super(message);
+      this.negativeHit = negativeHit;
+      this.retryAfterMs = retryAfterMs;
+    }
+
+    public boolean isNegativeHit() {
+      return negativeHit;
+    }
+
+    public long getRetryAfterMs() {
+      return retryAfterMs;
+    }
+  }
+
+  /**
+   * 值和锁的存储，默认实现为 {@link TieredCache} 加 ValKey 锁，测试中替换为内存实现。
+   */
+  interface Store {
+
+    /**
+     * @return 本实例内存中的值，不访问网络
+     */
+    String getLocal(String key);
+
+    Future<String> get(String key);
+
+    void put(String key, String value);
+
+    /**
+     * @return 是否加锁成功；无法访问锁服务时失败
+     */
+    Future<Boolean> tryLock(String lockKey, String owner, long ttlMillis);
+
+    void unlock(String lockKey, String owner);
+  }
+
+  private static final class TieredStore implements Store {
+
+    private final AsyncValKey valKey;
+    private final TieredCache cache;
+
+    TieredStore(Vertx vertx, TieredCache cache) {
+      this.valKey = new AsyncValKey(vertx);
+      this.cache = cache;
+    }
+
+    @Override
+    public String getLocal(String key) {
+      return cache.getLocal(key);
+    }
+
+    @Override
+    public Future<String> get(String key) {
+      return valKey.execute(() -> cache.get(key));
+    }
+
+    @Override
+    public void put(String key, String value) {
+      valKey.execute(() -> {
+        cache.put(key, value);
+        return null;
+      });
+    }
+
+    @Override
+    public Future<Boolean> tryLock(String lockKey, String owner, long ttlMillis) {
+      return valKey.execute(() -> ValKeyManager.getInstance().setIfAbsent(lockKey, owner, ttlMillis));
+    }
+
+    @Override
+    public void unlock(String lockKey, String owner) {
+      valKey.execute(() -> ValKeyManager.getInstance().delIfEquals(lockKey, owner));
+    }
+  }
+
+  // 存放在 TieredCache 中的条目：成功时有 value，失败时有 error
+  private record Entry(String value, String error, long loadedAt) {
+
+    String encode() {
+      return new JsonObject().put("v", value).put("e", error).put("at", loadedAt).encode();
+    }
+
+    static Entry decode(String encoded) {
+      if (encoded == null) {
+        return null;
+      }
+      JsonObject json = new JsonObject(encoded);
+      return new Entry(json.getString("v"), json.getString("e"), json.getLong("at"));
+    }
+  }
+}
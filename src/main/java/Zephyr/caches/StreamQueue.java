@@ -0,0 +1,375 @@
+package Zephyr.caches;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.valkey.StreamEntryID;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 ValKey Streams 的分布式任务队列，消息内容为 {@link TaskCodec} 编码的 {@link Tasks}，以原始字节写入。
+ * <p>
+ * 生产者通过 {@link #publish} 追加到流 {@code zephyr:stream:<name>}，所有实例以同一个消费者组（组名即队列名）消费，
+ * 每条消息只会投递给一个实例。消费端：
+ * <ul>
+ *   <li>按空闲的处理槽位批量读取（XREADGROUP COUNT），每个实例同时处理的消息数不超过 concurrency，
+ *   读不过来的消息留在流里给其他实例；</li>
+ *   <li>处理成功后 XACK；处理失败的消息确认后带上重试次数重新追加，超过 STREAM_MAX_ATTEMPTS 次移入
+ *   {@code zephyr:stream:<name>:dead}；</li>
+ *   <li>定期用 XAUTOCLAIM 认领其他实例读走后超过 STREAM_CLAIM_IDLE_MS 仍未确认的消息（实例崩溃或卡住）。</li>
+ *   <li>正在处理的消息每隔 STREAM_CLAIM_IDLE_MS / 3 用 XCLAIM 重新认领给自己以重置空闲时间，
+ *   处理时间超过 STREAM_CLAIM_IDLE_MS 的消息不会被认领走再执行一次；实例卡死后心跳停止，消息仍会被其他实例接手。</li>
+ * </ul>
+ * 读取块大小、等待时间和流的最大长度分别由 STREAM_BATCH_SIZE、STREAM_BLOCK_MS、STREAM_MAX_LEN 配置。
+ * STREAM_BLOCK_MS 需要小于 ValKey 客户端的读超时（默认 2 秒）。
+ * <p>
+ * 处理器在虚拟线程中执行，可以直接做阻塞操作。{@link #publish} 是阻塞的，事件循环中请通过
+ * {@link AsyncValKey#execute} 调用。
+ */
+public class StreamQueue {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamQueue.class);
+  private static final Map<String, StreamQueue> QUEUES = new ConcurrentHashMap<>();
+  private static final String PAYLOAD = "task";
+  private static final String ATTEMPT = "attempt";
+
+  private final String name;
+  private final String key;
+  private final String deadKey;
+  private final String consumer;
+  private final int concurrency;
+  private final int batchSize;
+  private final int blockMs;
+  private final long claimIdleMs;
+  private final long maxLen;
+  private final int maxAttempts;
+  private final TaskCodec codec;
+  private final Store store;
+  private final Semaphore slots;
+  private final ExecutorService executor;
+  // 本实例正在处理的消息
+  private final Set<StreamEntryID> inFlight = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder published = new LongAdder();
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder claimed = new LongAdder();
+  private final LongAdder deadLettered = new LongAdder();
+
+  private volatile TaskHandler handler;
+  private volatile Thread poller;
+
+  /**
+   * @param name        队列名，同时作为消费者组名
+   * @param concurrency 本实例同时处理的最大消息数
+   */
+  public StreamQueue(String name, int concurrency) {
+    this(name, concurrency, Dotenv.load(), TaskCodec.getDefault(), new ValKeyStore());
+  }
+
+  private StreamQueue(String name, int concurrency, Dotenv dotenv, TaskCodec codec, Store store) {
+    this(name, consumerName(), concurrency,
+      Integer.parseInt(dotenv.get("STREAM_BATCH_SIZE", "10")),
+      Integer.parseInt(dotenv.get("STREAM_BLOCK_MS", "1000")),
+      Long.parseLong(dotenv.get("STREAM_CLAIM_IDLE_MS", "60000")),
+      Long.parseLong(dotenv.get("STREAM_MAX_LEN", "100000")),
+      Integer.parseInt(dotenv.get("STREAM_MAX_ATTEMPTS", "5")),
+      codec, store);
+  }
+
+  StreamQueue(String name, String consumer, int concurrency, int batchSize, int blockMs, long claimIdleMs,
+              long maxLen, int maxAttempts, TaskCodec codec, Store store) {
+    this.name = name;
+    this.key = "zephyr:stream:" + name;
+    this.deadKey = key + ":dead";
+    this.consumer = consumer;
+    this.concurrency = concurrency;
+    this.batchSize = batchSize;
+    this.blockMs = blockMs;
+    this.claimIdleMs = claimIdleMs;
+    this.maxLen = maxLen;
+    this.maxAttempts = maxAttempts;
+    this.codec = codec;
+    this.store = store;
+    this.slots = new Semaphore(concurrency);
+    this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("zephyr-stream-" + name + "-", 0).factory());
+    QUEUES.put(name, this);
+  }
+
+  /**
+   * 追加一个任务。
+   *
+   * @param task 任务
+   * @return 消息 ID
+   */
+  public String publish(Tasks task) {
+    String id = append(key, task, 0);
+    published.increment();
+    return id;
+  }
+
+  /**
+   * 开始消费。同一个队列只能启动一次。
+   *
+   * @param handler 任务处理器，抛出异常表示处理失败
+   */
+  public synchronized void start(TaskHandler handler) {
+    if (poller != null) {
+      throw new IllegalStateException("Stream queue " + name + " is already started");
+    }
+    this.handler = handler;
+    poller = Thread.ofPlatform().daemon().name("zephyr-stream-" + name).start(this::poll);
+  }
+
+  /**
+   * 停止读取新消息，正在处理的消息会继续完成；未确认的消息之后由其他实例认领。
+   */
+  public synchronized void stop() {
+    if (poller != null) {
+      poller.interrupt();
+      poller = null;
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * @return 累计的发布、处理、失败、认领、死信数量，以及正在处理的消息数
+   */
+  public JsonObject metrics() {
+    return new JsonObject()
+      .put("stream", key)
+      .put("consumer", consumer)
+      .put("inFlight", concurrency - slots.availablePermits())
+      .put("concurrency", concurrency)
+      .put("published", published.sum())
+      .put("processed", processed.sum())
+      .put("failed", failed.sum())
+      .put("claimed", claimed.sum())
+      .put("deadLettered", deadLettered.sum());
+  }
+
+  /**
+   * @return 本实例所有队列的指标，键为队列名
+   */
+  public static JsonObject allMetrics() {
+    JsonObject json = new JsonObject();
+    QUEUES.forEach((name, queue) -> json.put(name, queue.metrics()));
+    return json;
+  }
+
+  // 消费循环：等到有空闲槽位再读取，读到的条数不超过空闲槽位数
+  private void poll() {
+    StreamEntryID claimCursor = new StreamEntryID();
+    long nextClaimAt = 0;
+    long nextHeartbeatAt = System.currentTimeMillis() + claimIdleMs / 3;
+    boolean groupReady = false;
+    while (!Thread.currentThread().isInterrupted()) {
+      int acquired = 0;
+      try {
+        if (!groupReady) {
+          store.xgroupCreate(key, name);
+          groupReady = true;
+        }
+        if (System.currentTimeMillis() >= nextHeartbeatAt) {
+          heartbeat();
+          nextHeartbeatAt = System.currentTimeMillis() + claimIdleMs / 3;
+        }
+        // 所有槽位都在处理长任务时也要定期醒来发送心跳
+        if (!slots.tryAcquire(blockMs, TimeUnit.MILLISECONDS)) {
+          continue;
+        }
+        acquired = 1 + drainSlots(batchSize - 1);
+
+        List<ValKeyManager.StreamMessage> entries;
+        if (System.currentTimeMillis() >= nextClaimAt) {
+          Map.Entry<StreamEntryID, List<ValKeyManager.StreamMessage>> claim =
+            store.xautoclaim(key, name, consumer, claimIdleMs, claimCursor, acquired);
+          claimCursor = claim.getKey();
+          entries = claim.getValue();
+          claimed.add(entries.size());
+          // 游标回到起点说明已经扫描完一轮，等下一个周期
+          if (claimCursor.equals(new StreamEntryID())) {
+            nextClaimAt = System.currentTimeMillis() + claimIdleMs / 2;
+          }
+        } else {
+          entries = store.xreadGroup(key, name, consumer, acquired, blockMs);
+        }
+        for (ValKeyManager.StreamMessage entry : entries) {
+          // 心跳赶不上时可能认领到自己正在处理的消息，不再重复执行
+          if (!inFlight.add(entry.id())) {
+            continue;
+          }
+          executor.execute(() -> process(entry));
+          acquired--;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        log.warn("Stream queue {} read failed, retrying", name, e);
+        sleepQuietly();
+      } finally {
+        slots.release(acquired);
+      }
+    }
+  }
+
+  private int drainSlots(int max) {
+    int drained = 0;
+    while (drained < max && slots.tryAcquire()) {
+      drained++;
+    }
+    return drained;
+  }
+
+  // 把正在处理的消息重新认领给自己，重置空闲时间
+  private void heartbeat() {
+    if (!inFlight.isEmpty()) {
+      store.xclaimJustId(key, name, consumer, inFlight.toArray(StreamEntryID[]::new));
+    }
+  }
+
+  private void process(ValKeyManager.StreamMessage entry) {
+    try {
+      if (entry.fields() == null) {
+        // 认领到的消息已经被裁剪掉
+        store.xack(key, name, entry.id());
+        return;
+      }
+      int attempt;
+      Tasks task;
+      try {
+        byte[] attemptField = entry.fields().get(ATTEMPT);
+        attempt = attemptField == null ? 0 : Integer.parseInt(new String(attemptField, StandardCharsets.UTF_8));
+        task = TaskCodec.decode(entry.fields().get(PAYLOAD));
+      } catch (RuntimeException e) {
+        // 无法解码的消息原样放入死信流，不再重试
+        log.error("Stream queue {} cannot decode {}", name, entry.id(), e);
+        store.xadd(deadKey, entry.fields(), maxLen);
+        store.xack(key, name, entry.id());
+        deadLettered.increment();
+        return;
+      }
+      try {
+        handler.handle(task);
+        processed.increment();
+      } catch (Exception e) {
+        failed.increment();
+        // 确认原消息，带着重试次数重新排队；超过次数的放入死信流
+        if (attempt + 1 >= maxAttempts) {
+          log.error("Stream queue {} gave up on {} after {} attempts", name, entry.id(), attempt + 1, e);
+          append(deadKey, task, attempt + 1);
+          deadLettered.increment();
+        } else {
+          log.warn("Stream queue {} failed to process {}, requeueing", name, entry.id(), e);
+          append(key, task, attempt + 1);
+        }
+      }
+      store.xack(key, name, entry.id());
+    } catch (Exception e) {
+      // ValKey 不可用：不确认，超时后由认领重新投递
+      log.error("Stream queue {} could not settle {}", name, entry.id(), e);
+    } finally {
+      inFlight.remove(entry.id());
+      slots.release();
+    }
+  }
+
+  private String append(String stream, Tasks task, int attempt) {
+    return store
+      .xadd(stream, Map.of(PAYLOAD, codec.encode(task), ATTEMPT, String.valueOf(attempt).getBytes(StandardCharsets.UTF_8)), maxLen)
+      .toString();
+  }
+
+  private static String consumerName() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      host = "unknown";
+    }
+    return host + "-" + ProcessHandle.current().pid();
+  }
+
+  private static void sleepQuietly() {
+    try {
+      Thread.sleep(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 流的存储，默认实现为 {@link ValKeyManager}，测试中替换为内存实现。方法与 ValKeyManager 中的同名方法一致，
+   * 失败时直接抛出异常。
+   */
+  interface Store {
+
+    StreamEntryID xadd(String key, Map<String, byte[]> fields, long maxLen);
+
+    void xgroupCreate(String key, String group);
+
+    List<ValKeyManager.StreamMessage> xreadGroup(String key, String group, String consumer, int count, int blockMs);
+
+    void xack(String key, String group, StreamEntryID id);
+
+    Map.Entry<StreamEntryID, List<ValKeyManager.StreamMessage>> xautoclaim(String key, String group, String consumer,
+                                                                          long minIdleMs, StreamEntryID start, int count);
+
+    void xclaimJustId(String key, String group, String consumer, StreamEntryID... ids);
+  }
+
+  private static final class ValKeyStore implements Store {
+
+    @Override
+    public StreamEntryID xadd(String key, Map<String, byte[]> fields, long maxLen) {
+      return ValKeyManager.getInstance().xadd(key, fields, maxLen);
+    }
+
+    @Override
+    public void xgroupCreate(String key, String group) {
+      ValKeyManager.getInstance().xgroupCreate(key, group);
+    }
+
+    @Override
+    public List<ValKeyManager.StreamMessage> xreadGroup(String key, String group, String consumer, int count, int blockMs) {
+      return ValKeyManager.getInstance().xreadGroup(key, group, consumer, count, blockMs);
+    }
+
+    @Override
+    public void xack(String key, String group, StreamEntryID id) {
+      ValKeyManager.getInstance().xack(key, group, id);
+    }
+
+    @Override
+    public Map.Entry<StreamEntryID, List<ValKeyManager.StreamMessage>> xautoclaim(String key, String group, String consumer,
+                                                                                 long minIdleMs, StreamEntryID start, int count) {
+      return ValKeyManager.getInstance().xautoclaim(key, group, consumer, minIdleMs, start, count);
+    }
+
+    @Override
+    public void xclaimJustId(String key, String group, String consumer, StreamEntryID... ids) {
+      ValKeyManager.getInstance().xclaimJustId(key, group, consumer, ids);
+    }
+  }
+
+  /**
+   * 任务处理器。
+   */
+  @FunctionalInterface
+  public interface TaskHandler {
+    void handle(Tasks task) throws Exception;
+  }
+}
@@ -0,0 +1,189 @@
+package Zephyr.caches;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.cdimascio.dotenv.Dotenv;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link Tasks} 在 ValKey 中的存储格式。
+ * <p>
+ * 写入的数据以 4 字节头开始：魔数 0xFE、编码版本、格式（JSON/Smile/CBOR）、压缩方式（无/LZ4）。
+ * 序列化结果超过阈值时用 LZ4 压缩，此时头后面紧跟 4 字节的原始长度。
+ * 0xFE 不会出现在 UTF-8 文本的开头，所以没有头的数据按旧版的 JSON 字符串读取，升级前写入的任务仍然可读。
+ * <p>
+ * 默认格式和压缩阈值由 TASKS_CODEC_FORMAT（json、smile、cbor，默认 smile）和
+ * TASKS_COMPRESS_THRESHOLD（字节，默认 1024）配置。
+ * 解压前检查头中记录的原始长度，超过 TASKS_MAX_DECODED_BYTES（默认 64 MB）的数据视为损坏，不分配内存。
+ */
+public final class TaskCodec {
+
+  /**
+   * 当前编码版本，头格式变化时递增，旧版本的数据仍需能够读取。
+   */
+  public static final byte VERSION = 1;
+
+  private static final byte MAGIC = (byte) 0xFE;
+  private static final int HEADER_LENGTH = 4;
+  private static final byte COMPRESSION_NONE = 0;
+  private static final byte COMPRESSION_LZ4 = 1;
+
+  private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+  private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+  private static volatile TaskCodec defaultCodec;
+
+  private final Format format;
+  private final int compressThreshold;
+
+  /**
+   * @param format            写入时使用的格式，读取时以数据头为准
+   * @param compressThreshold 序列化结果达到该字节数时压缩，小于 0 表示不压缩
+   */
+  public TaskCodec(Format format, int compressThreshold) {
+    this.format = format;
+    this.compressThreshold = compressThreshold;
+  }
+
+  /**
+   * @return 按环境变量配置的编码器
+   */
+  public static TaskCodec getDefault() {
+    if (defaultCodec == null) {
+      synchronized (TaskCodec.class) {
+        if (defaultCodec == null) {
+          Dotenv dotenv = Dotenv.load();
+          defaultCodec = new TaskCodec(
+            Format.valueOf(dotenv.get("TASKS_CODEC_FORMAT", "smile").toUpperCase()),
+            Integer.parseInt(dotenv.get("TASKS_COMPRESS_THRESHOLD", "1024")));
+        }
+      }
+    }
+    return defaultCodec;
+  }
+
+  /**
+   * @param task 任务
+   * @return 带数据头的编码结果
+   */
+  public byte[] encode(Tasks task) {
+    byte[] payload;
+    try {
+      payload = format.mapper.writeValueAsBytes(task);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to serialize task", e);
+    }
+    if (compressThreshold < 0 || payload.length < compressThreshold) {
+      ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+      putHeader(out, COMPRESSION_NONE);
+      return out.put(payload).array();
+    }
+    byte[] out = new byte[HEADER_LENGTH + 4 + COMPRESSOR.maxCompressedLength(payload.length)];
+    ByteBuffer header = ByteBuffer.wrap(out);
+    putHeader(header, COMPRESSION_LZ4);
+    header.putInt(payload.length);
+    int compressed = COMPRESSOR.compress(payload, 0, payload.length, out, HEADER_LENGTH + 4);
+    return Arrays.copyOf(out, HEADER_LENGTH + 4 + compressed);
+  }
+
+  /**
+   * 解码任意版本写入的数据，包括没有数据头的旧版 JSON。
+   *
+   * @param data 从 ValKey 读出的原始字节
+   * @return 任务
+   */
+  public static Tasks decode(byte[] data) {
+    return decode(data, MaxLength.VALUE);
+  }
+
+  /**
+   * @param data      从 ValKey 读出的原始字节
+   * @param maxLength 允许的最大原始长度（字节）
+   * @return 任务
+   */
+  static Tasks decode(byte[] data, int maxLength) {
+    try {
+      if (data.length == 0 || data[0] != MAGIC) {
+        return Format.JSON.mapper.readValue(data, Tasks.class);
+      }
+      if (data.length < HEADER_LENGTH || data[1] > VERSION) {
+        throw new IllegalStateException("Unsupported task encoding version " + (data.length > 1 ? data[1] : -1));
+      }
+      ObjectMapper mapper = Format.of(data[2]).mapper;
+      return switch (data[3]) {
+        case COMPRESSION_NONE -> mapper.readValue(data, HEADER_LENGTH, data.length - HEADER_LENGTH, Tasks.class);
+        case COMPRESSION_LZ4 -> {
+          if (data.length < HEADER_LENGTH + 4) {
+            throw new IllegalStateException("Truncated compressed task");
+          }
+          int length = ByteBuffer.wrap(data, HEADER_LENGTH, 4).getInt();
+          if (length < 0 || length > maxLength) {
+            throw new IllegalStateException("Invalid uncompressed task length " + length);
+          }
+          byte[] payload = new byte[length];
+          DECOMPRESSOR.decompress(data, HEADER_LENGTH + 4, payload, 0, length);
+          yield mapper.readValue(payload, Tasks.class);
+        }
+        default -> throw new IllegalStateException("Unknown task compression " + data[3]);
+      };
+    } catch (IOException | LZ4Exception e) {
+      throw new IllegalStateException("Failed to deserialize task", e);
+    }
+  }
+
+  private void putHeader(ByteBuffer out, byte compression) {
+    out.put(MAGIC).put(VERSION).put(format.id).put(compression);
+  }
+
+  // 第一次解码时读取配置，没有 .env 时使用默认值
+  private static final class MaxLength {
+    static final int VALUE = Integer.parseInt(
+      Dotenv.configure().ignoreIfMissing().load().get("TASKS_MAX_DECODED_BYTES", String.valueOf(64 * 1024 * 1024)));
+  }
+
+  /**
+   * 序列化格式。id 写入数据头，已经使用的值不能修改。
+   */
+  public enum Format {
+    JSON(0, new ObjectMapper()),
+    SMILE(1, new ObjectMapper(new SmileFactory())),
+    CBOR(2, new ObjectMapper(new CBORFactory()));
+
+    private final byte id;
+    // 预先配置好的共享 ObjectMapper，线程安全
+    private final ObjectMapper mapper;
+
+    Format(int id, ObjectMapper mapper) {
+      this.id = (byte) id;
+      this.mapper = mapper
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    /**
+     * @return 该格式共享的 ObjectMapper
+     */
+    public ObjectMapper mapper() {
+      return mapper;
+    }
+
+    private static Format of(byte id) {
+      for (Format format : values()) {
+        if (format.id == id) {
+          return format;
+        }
+      }
+      throw new IllegalStateException("Unknown task format " + id);
+    }
+  }
+}
@@ -1,12 +1,16 @@
 package Zephyr.caches;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 /**
  * Task 类用于表示一个任务对象，并支持将任务保存到 ValKey 分布式缓存中。
  * 提供了序列化和反序列化功能，以及支持设置过期时间的缓存操作。
+ * 写入 ValKey 时使用 {@link TaskCodec} 的默认编码（二进制格式，较大时压缩），读取时兼容旧版的 JSON 字符串。
  * @author tingzhanghuang
  */
 public class Tasks {
@@ -16,19 +20,8 @@ public class Tasks {
   private final Object value;
   // 任务的创建时间戳
   private final LocalDateTime timestamp;
-  // JSON 序列化和反序列化工具
-  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-  // ValKey 管理器实例
-  private static final ValKeyManager VAL_KEY_MANAGER = null;
-
-  // 静态代码块初始化 ObjectMapper 和 ValKeyManager
-  static {
-    // 注册 JavaTimeModule 以支持 LocalDateTime 的序列化和反序列化
-    ObjectMapper objectMapper = new ObjectMapper();
-    objectMapper.registerModule(new JavaTimeModule());
-    // 初始化 ValKeyManager
-    ValKeyManager valKeyManager = ValKeyManager.getInstance();
-  }
+  // JSON 序列化和反序列化工具，与 TaskCodec 共用同一个预先配置好的实例
+  private static final ObjectMapper OBJECT_MAPPER = TaskCodec.Format.JSON.mapper();
 
   /**
    * 构造函数，用于创建一个新的 Task 实例。
@@ -43,6 +36,18 @@ public class Tasks {
     this.timestamp = LocalDateTime.now();
   }
 
+  /**
+   * 反序列化使用的构造函数，保留原始的创建时间。
+   */
+  @JsonCreator
+  private Tasks(@JsonProperty("key") String key,
+                @JsonProperty("value") Object value,
+                @JsonProperty("timestamp") LocalDateTime timestamp) {
+    this.key = key;
+    this.value = value;
+    this.timestamp = timestamp;
+  }
+
   // Getters
   public String getKey() {
     return key;
@@ -56,17 +61,43 @@ public class Tasks {
     return timestamp;
   }
 
+  /**
+   * 将任务序列化为 JSON 字符串。
+   *
+   * @return JSON 字符串
+   */
+  public String toJson() {
+    try {
+      return OBJECT_MAPPER.writeValueAsString(this);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to serialize task", e);
+    }
+  }
+
+  /**
+   * 从 JSON 字符串反序列化任务。
+   *
+   * @param json JSON 字符串
+   * @return Task 对象
+   */
+  public static Tasks fromJson(String json) {
+    try {
+      return OBJECT_MAPPER.readValue(json, Tasks.class);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to deserialize task", e);
+    }
+  }
+
   /**
    * 将任务保存到 ValKey 缓存中。
    */
   public void saveToValKey() {
     try {
-      // 将 Task 对象序列化为 JSON 字符串
-      ObjectMapper objectMapper = new ObjectMapper();
-      String jsonValue = objectMapper.writeValueAsString(this);
+      // 按默认编码序列化
+      byte[] encoded = TaskCodec.getDefault().encode(this);
       // 使用 ValKeyManager 保存键值对
       ValKeyManager valKeyManager = ValKeyManager.getInstance();
-      valKeyManager.set(key, jsonValue);
+      valKeyManager.set(key, encoded);
     } catch (Exception e) {
       throw new RuntimeException("Failed to save task to ValKey", e);
     }
@@ -80,21 +111,35 @@ public class Tasks {
    */
   public static Tasks getFromValKey(String key) {
     try {
-      // 从 ValKey 缓存中获取 JSON 字符串
+      // 从 ValKey 缓存中获取原始字节
       ValKeyManager valKeyManager = ValKeyManager.getInstance();
-      String jsonValue = valKeyManager.get(key);
-      if (jsonValue == null) {
+      byte[] encoded = valKeyManager.getBytes(key);
+      if (encoded == null) {
         // 如果键不存在，返回 null
         return null;
       }
-      // 将 JSON 字符串反序列化为 Task 对象
-      ObjectMapper objectMapper = new ObjectMapper();
-      return objectMapper.readValue(jsonValue, Tasks.class);
+      // 按数据头解码，没有数据头的按旧版 JSON 读取
+      return TaskCodec.decode(encoded);
     } catch (Exception e) {
       throw new RuntimeException("Failed to get task from ValKey", e);
     }
   }
 
+  /**
+   * 一次往返从 ValKey 缓存中获取多个任务。
+   *
+   * @param keys 任务的唯一标识
+   * @return 与 keys 顺序一致的任务，不存在的键为 null
+   */
+  public static List<Tasks> getAllFromValKey(List<String> keys) {
+    List<byte[]> values = ValKeyManager.getInstance().mgetBytes(keys);
+    List<Tasks> tasks = new ArrayList<>(values.size());
+    for (byte[] encoded : values) {
+      tasks.add(encoded == null ? null : TaskCodec.decode(encoded));
+    }
+    return tasks;
+  }
+
   /**
    * 将任务保存到 ValKey 缓存中，并设置过期时间。
    *
@@ -102,12 +147,11 @@ public class Tasks {
    */
   public void saveToValKeyWithExpire(int seconds) {
     try {
-      // 将 Task 对象序列化为 JSON 字符串
-      ObjectMapper objectMapper = new ObjectMapper();
-      String jsonValue = objectMapper.writeValueAsString(this);
+      // 按默认编码序列化
+      byte[] encoded = TaskCodec.getDefault().encode(this);
       // 使用 ValKeyManager 保存键值对，并设置过期时间
       ValKeyManager valKeyManager = ValKeyManager.getInstance();
-      valKeyManager.setWithExpire(key, jsonValue, seconds);
+      valKeyManager.setWithExpire(key, encoded, seconds);
     } catch (Exception e) {
       throw new RuntimeException("Failed to save task to ValKey with expiration", e);
     }
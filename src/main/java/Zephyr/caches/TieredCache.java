@@ -0,0 +1,306 @@
+package Zephyr.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.valkey.JedisPubSub;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存：L1 为本进程内的 Caffeine 近端缓存，L2 为 ValKey。
+ * 读取先查 L1，未命中再查 ValKey 并回填 L1；热点键的读取不再有网络往返。
+ * <p>
+ * 缓存按命名空间划分，每个命名空间有自己的 TTL 和 L1 容量，ValKey 中的键为 {@code zephyr:<namespace>:<key>}。
+ * 默认值由调用方给出，可以用 CACHE_&lt;NAMESPACE&gt;_TTL_SECONDS、CACHE_&lt;NAMESPACE&gt;_MAX_ENTRIES 覆盖。
+ * <p>
+ * 写入和删除会通过 ValKey 的发布/订阅广播失效消息，所有 Zephyr 实例收到后清除各自 L1 中的副本。
+ * 订阅断开期间可能漏掉消息，因此重连后会清空全部 L1，L1 的存活时间也不超过 CACHE_L1_TTL_SECONDS。
+ * <p>
+ * ValKey 访问是阻塞的，只能在 worker 线程或虚拟线程中调用。
+ */
+public final class TieredCache {
+
+  private static final Logger log = LoggerFactory.getLogger(TieredCache.class);
+
+  /**
+   * 失效消息的频道，消息格式为 {@code <实例ID>|<命名空间>|<键>}，多个键以换行分隔，键为 * 表示整个命名空间。
+   */
+  public static final String INVALIDATION_CHANNEL = "zephyr:cache:invalidate";
+
+  private static final String ALL_KEYS = "*";
+  static final String NODE_ID = UUID.randomUUID().toString();
+  private static final Map<String, TieredCache> NAMESPACES = new ConcurrentHashMap<>();
+  private static volatile Thread subscriber;
+
+  private final String namespace;
+  private final String keyPrefix;
+  private final int ttlSeconds;
+  private final Cache<String, String> local;
+  private final LongAdder l1Hits = new LongAdder();
+  private final LongAdder l2Hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder remoteInvalidations = new LongAdder();
+
+  private TieredCache(String namespace, int ttlSeconds, long maxEntries, long l1MaxTtlSeconds) {
+    this.namespace = namespace;
+    this.keyPrefix = "zephyr:" + namespace + ":";
+    this.ttlSeconds = ttlSeconds;
+    this.local = Caffeine.newBuilder()
+      .maximumSize(maxEntries)
+      .expireAfterWrite(Duration.ofSeconds(Math.min(ttlSeconds, l1MaxTtlSeconds)))
+      .build();
+  }
+
+  /**
+   * 获取命名空间对应的缓存，同名命名空间只会创建一次。
+   *
+   * @param namespace  命名空间，不能包含 | 和 :
+   * @param ttl        默认的过期时间
+   * @param maxEntries 默认的 L1 最大条目数
+   * @return 缓存实例
+   */
+  public static TieredCache namespace(String namespace, Duration ttl, long maxEntries) {
+    if (namespace.indexOf('|') >= 0 || namespace.indexOf(':') >= 0) {
+      throw new IllegalArgumentException("Invalid cache namespace: " + namespace);
+    }
+    Dotenv dotenv = Dotenv.load();
+    String prefix = "CACHE_" + namespace.toUpperCase() + "_";
+    TieredCache cache = register(namespace,
+      Integer.parseInt(dotenv.get(prefix + "TTL_SECONDS", String.valueOf(ttl.toSeconds()))),
+      Long.parseLong(dotenv.get(prefix + "MAX_ENTRIES", String.valueOf(maxEntries))),
+      Long.parseLong(dotenv.get("CACHE_L1_TTL_SECONDS", "60")));
+    startSubscriber();
+    return cache;
+  }
+
+  // 创建并登记命名空间，不启动订阅
+  static TieredCache register(String namespace, int ttlSeconds, long maxEntries, long l1MaxTtlSeconds) {
+    return NAMESPACES.computeIfAbsent(namespace, name -> new TieredCache(name, ttlSeconds, maxEntries, l1MaxTtlSeconds));
+  }
+
+  /**
+   * @param key 命名空间内的键
+   * @return 缓存的值，不存在时为 null
+   */
+  public String get(String key) {
+    String value = local.getIfPresent(key);
+    if (value != null) {
+      l1Hits.increment();
+      return value;
+    }
+    value = ValKeyManager.getInstance().get(keyPrefix + key);
+    if (value == null) {
+      misses.increment();
+      return null;
+    }
+    l2Hits.increment();
+    local.put(key, value);
+    return value;
+  }
+
+  /**
+   * 只查 L1，不访问 ValKey，可以在事件循环中调用。
+   *
+   * @param key 命名空间内的键
+   * @return L1 中的值，不存在时为 null
+   */
+  public String getLocal(String key) {
+    String value = local.getIfPresent(key);
+    if (value != null) {
+      l1Hits.increment();
+    }
+    return value;
+  }
+
+  /**
+   * 批量读取：L1 未命中的键合并成一次 MGET。
+   *
+   * @param keys 命名空间内的键
+   * @return 命中的键值对，未命中的键不在结果中
+   */
+  public Map<String, String> getAll(Collection<String> keys) {
+    Map<String, String> found = new HashMap<>(local.getAllPresent(keys));
+    l1Hits.add(found.size());
+    List<String> remaining = keys.stream().filter(key -> !found.containsKey(key)).distinct().toList();
+    if (remaining.isEmpty()) {
+      return found;
+    }
+    List<String> values = ValKeyManager.getInstance().mget(remaining.stream().map(key -> keyPrefix + key).toList());
+    for (int i = 0; i < remaining.size(); i++) {
+      String value = values.get(i);
+      if (value == null) {
+        misses.increment();
+        continue;
+      }
+      l2Hits.increment();
+      local.put(remaining.get(i), value);
+      found.put(remaining.get(i), value);
+    }
+    return found;
+  }
+
+  /**
+   * 批量写入（例如预热）：所有 SETEX 在同一个管线中发送，失效消息合并为一条。
+   *
+   * @param values 命名空间内的键值对
+   */
+  public void putAll(Map<String, String> values) {
+    if (values.isEmpty()) {
+      return;
+    }
+    local.putAll(values);
+    ValKeyManager.getInstance().pipelined(pipeline ->
+      values.forEach((key, value) -> pipeline.setex(keyPrefix + key, ttlSeconds, value)));
+    puts.add(values.size());
+    broadcast(String.join("\n", values.keySet()));
+  }
+
+  /**
+   * 写入两级缓存，并通知其他实例清除旧的 L1 副本。
+   *
+   * @param key   命名空间内的键
+   * @param value 值
+   */
+  public void put(String key, String value) {
+    local.put(key, value);
+    ValKeyManager.getInstance().setWithExpire(keyPrefix + key, value, ttlSeconds);
+    puts.increment();
+    broadcast(key);
+  }
+
+  /**
+   * 写入两级缓存，不广播失效消息。只用于值由内容决定、写入后不会再变化的键（例如以内容哈希为键），
+   * 其他实例即使已有 L1 副本也与新值相同，不需要清除。
+   *
+   * @param key   命名空间内的键
+   * @param value 值
+   */
+  public void putImmutable(String key, String value) {
+    local.put(key, value);
+    ValKeyManager.getInstance().setWithExpire(keyPrefix + key, value, ttlSeconds);
+    puts.increment();
+  }
+
+  // 只写入本实例的 L1，不访问 ValKey
+  void putLocal(String key, String value) {
+    local.put(key, value);
+  }
+
+  /**
+   * 删除两级缓存中的键，并通知其他实例。
+   *
+   * @param key 命名空间内的键
+   */
+  public void invalidate(String key) {
+    local.invalidate(key);
+    ValKeyManager.getInstance().del(keyPrefix + key);
+    broadcast(key);
+  }
+
+  /**
+   * 清空所有实例中这个命名空间的 L1。ValKey 中的条目不逐个删除，依赖 TTL 过期，
+   * 调用方应当同时换用新的键（例如在键中带上版本号）。
+   */
+  public void invalidateLocalAll() {
+    local.invalidateAll();
+    broadcast(ALL_KEYS);
+  }
+
+  /**
+   * @return 命中次数、命中率和 L1 大小
+   */
+  public JsonObject metrics() {
+    long l1 = l1Hits.sum();
+    long l2 = l2Hits.sum();
+    long miss = misses.sum();
+    long total = l1 + l2 + miss;
+    return new JsonObject()
+      .put("ttlSeconds", ttlSeconds)
+      .put("l1Size", local.estimatedSize())
+      .put("l1Hits", l1)
+      .put("l2Hits", l2)
+      .put("misses", miss)
+      .put("hitRatio", total == 0 ? 0.0 : (double) (l1 + l2) / total)
+      .put("l1HitRatio", total == 0 ? 0.0 : (double) l1 / total)
+      .put("puts", puts.sum())
+      .put("remoteInvalidations", remoteInvalidations.sum());
+  }
+
+  /**
+   * @return 所有命名空间的指标，键为命名空间
+   */
+  public static JsonObject allMetrics() {
+    JsonObject json = new JsonObject();
+    NAMESPACES.forEach((name, cache) -> json.put(name, cache.metrics()));
+    return json;
+  }
+
+  private void broadcast(String key) {
+    ValKeyManager.getInstance().publish(INVALIDATION_CHANNEL, NODE_ID + "|" + namespace + "|" + key);
+  }
+
+  // 处理其他实例发来的失效消息
+  static void onInvalidation(String message) {
+    int first = message.indexOf('|');
+    int second = message.indexOf('|', first + 1);
+    if (first < 0 || second < 0 || message.startsWith(NODE_ID + "|")) {
+      return;
+    }
+    TieredCache cache = NAMESPACES.get(message.substring(first + 1, second));
+    if (cache == null) {
+      return;
+    }
+    String keys = message.substring(second + 1);
+    if (ALL_KEYS.equals(keys)) {
+      cache.local.invalidateAll();
+    } else {
+      cache.local.invalidateAll(Arrays.asList(keys.split("\n")));
+    }
+    cache.remoteInvalidations.increment();
+  }
+
+  // 订阅失效频道；连接断开后等待一秒重连，并清空 L1 以防漏掉消息
+  private static void startSubscriber() {
+    if (subscriber != null) {
+      return;
+    }
+    synchronized (TieredCache.class) {
+      if (subscriber != null) {
+        return;
+      }
+      subscriber = Thread.ofPlatform().daemon().name("zephyr-cache-invalidation").start(() -> {
+        while (!Thread.currentThread().isInterrupted()) {
+          try {
+            ValKeyManager.getInstance().subscribe(new JedisPubSub() {
+              @Override
+              public void onMessage(String channel, String message) {
+                onInvalidation(message);
+              }
+            }, INVALIDATION_CHANNEL);
+          } catch (Exception e) {
+            log.warn("Cache invalidation subscription lost, retrying", e);
+          }
+          NAMESPACES.values().forEach(cache -> cache.local.invalidateAll());
+          try {
+            Thread.sleep(1000);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      });
+    }
+  }
+}
@@ -1,16 +1,38 @@
 package Zephyr.caches;
 
 import io.github.cdimascio.dotenv.Dotenv;
+import io.valkey.AbstractPipeline;
+import io.valkey.AbstractTransaction;
 import io.valkey.JedisPoolConfig;
 import io.valkey.JedisPooled;
+import io.valkey.JedisPubSub;
+import io.valkey.PipeliningBase;
+import io.valkey.StreamEntryID;
+import io.valkey.exceptions.JedisDataException;
+import io.valkey.params.SetParams;
+import io.valkey.params.XAddParams;
+import io.valkey.params.XAutoClaimParams;
+import io.valkey.params.XClaimParams;
+import io.valkey.params.XReadGroupParams;
+import io.valkey.util.SafeEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 /**
  * @author tingzhanghuang
  */
 public class ValKeyManager {
   private static final Logger log = LoggerFactory.getLogger(ValKeyManager.class);
+  private static final String DEL_IF_EQUALS =
+    "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end";
   // 单例实例
   private static volatile ValKeyManager instance;
   Dotenv dotenv = Dotenv.load();
@@ -80,6 +102,61 @@ public class ValKeyManager {
     }
   }
 
+  public void set(String key, byte[] value) {
+    try {
+      jedisPooled.set(SafeEncoder.encode(key), value);
+    } catch (Exception e) {
+      log.error("Failed to set key: {}, {} bytes", key, value.length, e);
+    }
+  }
+
+  public byte[] getBytes(String key) {
+    try {
+      return jedisPooled.get(SafeEncoder.encode(key));
+    } catch (Exception e) {
+      log.error("Failed to get key: {}", key, e);
+      return null;
+    }
+  }
+
+  public void setWithExpire(String key, byte[] value, int seconds) {
+    try {
+      jedisPooled.setex(SafeEncoder.encode(key), seconds, value);
+    } catch (Exception e) {
+      log.error("Failed to set key: {}, {} bytes, expire: {}", key, value.length, seconds, e);
+    }
+  }
+
+  /**
+   * 键不存在时才写入（SET NX PX），用作短时间的分布式锁。
+   * 与其他方法不同，ValKey 不可用时直接抛出异常，调用方需要区分"锁被占用"和"无法加锁"。
+   *
+   * @param key      键
+   * @param value    值，一般为持有者标识
+   * @param ttlMillis 过期时间（毫秒）
+   * @return 是否写入成功；键已存在时为 false
+   */
+  public boolean setIfAbsent(String key, String value, long ttlMillis) {
+    return "OK".equals(jedisPooled.set(key, value, SetParams.setParams().nx().px(ttlMillis)));
+  }
+
+  /**
+   * 键的值等于 expected 时才删除，用于释放 {@link #setIfAbsent} 加的锁，避免删掉锁过期后其他持有者加的锁。
+   *
+   * @param key      键
+   * @param expected 期望的值
+   * @return 是否删除
+   */
+  public boolean delIfEquals(String key, String expected) {
+    try {
+      Object deleted = jedisPooled.eval(DEL_IF_EQUALS, List.of(key), List.of(expected));
+      return Long.valueOf(1).equals(deleted);
+    } catch (Exception e) {
+      log.error("Failed to delete key if equals: {}", key, e);
+      return false;
+    }
+  }
+
   public void setWithExpire(String key, String value, int seconds) {
     try {
       jedisPooled.setex(key, seconds, value);
@@ -95,4 +172,295 @@ public class ValKeyManager {
       log.error("Failed to delete key: {}", key, e);
     }
   }
+
+  /**
+   * 一次往返读取多个键。
+   *
+   * @param keys 键
+   * @return 与 keys 顺序一致的值，不存在的键为 null；读取失败时全部为 null
+   */
+  public List<String> mget(List<String> keys) {
+    if (keys.isEmpty()) {
+      return List.of();
+    }
+    try {
+      return jedisPooled.mget(keys.toArray(String[]::new));
+    } catch (Exception e) {
+      log.error("Failed to mget {} keys", keys.size(), e);
+      return Arrays.asList(new String[keys.size()]);
+    }
+  }
+
+  /**
+   * 一次往返读取多个二进制值。
+   *
+   * @param keys 键
+   * @return 与 keys 顺序一致的值，不存在的键为 null；读取失败时全部为 null
+   */
+  public List<byte[]> mgetBytes(List<String> keys) {
+    if (keys.isEmpty()) {
+      return List.of();
+    }
+    try {
+      return jedisPooled.mget(keys.stream().map(SafeEncoder::encode).toArray(byte[][]::new));
+    } catch (Exception e) {
+      log.error("Failed to mget {} keys", keys.size(), e);
+      return Arrays.asList(new byte[keys.size()][]);
+    }
+  }
+
+  /**
+   * 一次往返写入多个键，不设置过期时间。
+   *
+   * @param values 键值对
+   */
+  public void mset(Map<String, String> values) {
+    if (values.isEmpty()) {
+      return;
+    }
+    String[] keysAndValues = new String[values.size() * 2];
+    int i = 0;
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      keysAndValues[i++] = entry.getKey();
+      keysAndValues[i++] = entry.getValue();
+    }
+    try {
+      jedisPooled.mset(keysAndValues);
+    } catch (Exception e) {
+      log.error("Failed to mset {} keys", values.size(), e);
+    }
+  }
+
+  /**
+   * 一次往返写入多个键，所有键使用相同的过期时间。
+   *
+   * @param values  键值对
+   * @param seconds 过期时间（秒）
+   */
+  public void msetWithExpire(Map<String, String> values, int seconds) {
+    pipelined(pipeline -> values.forEach((key, value) -> pipeline.setex(key, seconds, value)));
+  }
+
+  /**
+   * 一次往返写入多个键，每个键有自己的过期时间。
+   *
+   * @param entries 键到值和过期时间的映射
+   */
+  public void msetWithExpire(Map<String, Expiring> entries) {
+    pipelined(pipeline -> entries.forEach((key, entry) -> pipeline.setex(key, entry.seconds(), entry.value())));
+  }
+
+  /**
+   * 一次往返删除多个键。
+   *
+   * @param keys 键
+   * @return 实际删除的键数量，失败时为 0
+   */
+  public long del(Collection<String> keys) {
+    if (keys.isEmpty()) {
+      return 0;
+    }
+    try {
+      return jedisPooled.del(keys.toArray(String[]::new));
+    } catch (Exception e) {
+      log.error("Failed to delete {} keys", keys.size(), e);
+      return 0;
+    }
+  }
+
+  /**
+   * 管线：回调中添加的命令在回调返回后一次性发送，只需要一次往返。
+   * 回调中拿到的 {@link io.valkey.Response} 在本方法返回后才能读取。
+   *
+   * @param commands 添加命令的回调
+   * @return 是否全部发送并收到响应
+   */
+  public boolean pipelined(Consumer<PipeliningBase> commands) {
+    try (AbstractPipeline pipeline = jedisPooled.pipelined()) {
+      commands.accept(pipeline);
+      pipeline.sync();
+      return true;
+    } catch (Exception e) {
+      log.error("Failed to execute pipeline", e);
+      return false;
+    }
+  }
+
+  /**
+   * 事务：回调中添加的命令包在 MULTI/EXEC 中一次性发送，原子执行。
+   *
+   * @param commands 添加命令的回调
+   * @return 每条命令的结果，失败时为 null
+   */
+  public List<Object> transaction(Consumer<PipeliningBase> commands) {
+    try (AbstractTransaction transaction = jedisPooled.multi()) {
+      commands.accept(transaction);
+      return transaction.exec();
+    } catch (Exception e) {
+      log.error("Failed to execute transaction", e);
+      return null;
+    }
+  }
+
+  public void publish(String channel, String message) {
+    try {
+      jedisPooled.publish(channel, message);
+    } catch (Exception e) {
+      log.error("Failed to publish to channel: {}", channel, e);
+    }
+  }
+
+  /**
+   * 订阅频道。会一直阻塞当前线程直到取消订阅或连接断开，连接断开时抛出异常，由调用方决定是否重连。
+   *
+   * @param pubSub   消息处理器
+   * @param channels 频道
+   */
+  public void subscribe(JedisPubSub pubSub, String... channels) {
+    jedisPooled.subscribe(pubSub, channels);
+  }
+
+  // Streams：供 StreamQueue 使用，失败时直接抛出异常，由消费循环退避重试
+
+  /**
+   * 追加消息，流的长度近似地保持在 maxLen 以内。字段值为原始字节，不做文本编码。
+   *
+   * @param key    流
+   * @param fields 消息内容
+   * @param maxLen 最大长度
+   * @return 消息 ID
+   */
+  public StreamEntryID xadd(String key, Map<String, byte[]> fields, long maxLen) {
+    Map<byte[], byte[]> raw = new LinkedHashMap<>();
+    fields.forEach((field, value) -> raw.put(SafeEncoder.encode(field), value));
+    byte[] id = jedisPooled.xadd(SafeEncoder.encode(key), XAddParams.xAddParams().maxLen(maxLen).approximateTrimming(), raw);
+    return new StreamEntryID(SafeEncoder.encode(id));
+  }
+
+  /**
+   * 创建消费者组，流不存在时一并创建，组内从流的第一条消息开始消费。
+   *
+   * @param key   流
+   * @param group 消费者组
+   * @return 是否新建；组已存在时为 false
+   */
+  public boolean xgroupCreate(String key, String group) {
+    try {
+      jedisPooled.xgroupCreate(key, group, new StreamEntryID(), true);
+      return true;
+    } catch (JedisDataException e) {
+      if (e.getMessage() != null && e.getMessage().startsWith("BUSYGROUP")) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * 以消费者组的身份读取尚未投递过的消息。
+   *
+   * @param key      流
+   * @param group    消费者组
+   * @param consumer 消费者
+   * @param count    最多读取的条数
+   * @param blockMs  没有消息时最多等待的毫秒数
+   * @return 读到的消息，可能为空
+   */
+  // 客户端的 xreadGroup 以泛型可变参数 Map.Entry<byte[], byte[]>... 接收流，调用处无法避免 unchecked 警告
+  @SuppressWarnings("unchecked")
+  public List<StreamMessage> xreadGroup(String key, String group, String consumer, int count, int blockMs) {
+    List<Object> streams = jedisPooled.xreadGroup(SafeEncoder.encode(group), SafeEncoder.encode(consumer),
+      XReadGroupParams.xReadGroupParams().count(count).block(blockMs),
+      Map.entry(SafeEncoder.encode(key), SafeEncoder.encode(">")));
+    if (streams == null || streams.isEmpty()) {
+      return List.of();
+    }
+    // ">" 表示只读尚未投递过的消息；返回 [[流名, [[ID, [字段, 值, ...]], ...]]]
+    return streamMessages(((List<?>) streams.get(0)).get(1));
+  }
+
+  /**
+   * 确认消息已处理，从组的待处理列表中移除。
+   *
+   * @param key   流
+   * @param group 消费者组
+   * @param ids   消息 ID
+   * @return 确认的条数
+   */
+  public long xack(String key, String group, StreamEntryID... ids) {
+    return jedisPooled.xack(key, group, ids);
+  }
+
+  /**
+   * 认领其他消费者读取后超过 minIdleMs 仍未确认的消息（例如实例崩溃）。
+   *
+   * @param key       流
+   * @param group     消费者组
+   * @param consumer  认领到的消费者
+   * @param minIdleMs 最小空闲时间
+   * @param start     扫描起点，第一次传 0-0，之后传上一次返回的游标
+   * @param count     最多认领的条数
+   * @return 下一次扫描的游标和认领到的消息；已被裁剪的消息 fields 为 null
+   */
+  public Map.Entry<StreamEntryID, List<StreamMessage>> xautoclaim(String key, String group, String consumer,
+                                                                  long minIdleMs, StreamEntryID start, int count) {
+    List<Object> reply = jedisPooled.xautoclaim(SafeEncoder.encode(key), SafeEncoder.encode(group),
+      SafeEncoder.encode(consumer), minIdleMs, SafeEncoder.encode(start.toString()),
+      XAutoClaimParams.xAutoClaimParams().count(count));
+    // [游标, [[ID, [字段, 值, ...]], ...], 已删除的 ID（7.0 起）]
+    return Map.entry(new StreamEntryID(SafeEncoder.encode((byte[]) reply.get(0))), streamMessages(reply.get(1)));
+  }
+
+  /**
+   * 把仍在处理中的消息重新认领给自己，重置空闲时间，避免被其他消费者的 XAUTOCLAIM 当作无人处理的消息认领走。
+   *
+   * @param key      流
+   * @param group    消费者组
+   * @param consumer 消费者
+   * @param ids      消息 ID
+   * @return 认领成功的消息 ID；已确认或已被裁剪的消息不在结果中
+   */
+  public List<StreamEntryID> xclaimJustId(String key, String group, String consumer, StreamEntryID... ids) {
+    return jedisPooled.xclaimJustId(key, group, consumer, 0, XClaimParams.xClaimParams(), ids);
+  }
+
+  // 解析二进制的消息列表，字段名按 UTF-8 解码，值保留原始字节
+  private static List<StreamMessage> streamMessages(Object reply) {
+    if (reply == null) {
+      return List.of();
+    }
+    List<StreamMessage> messages = new ArrayList<>();
+    for (Object item : (List<?>) reply) {
+      List<?> entry = (List<?>) item;
+      StreamEntryID id = new StreamEntryID(SafeEncoder.encode((byte[]) entry.get(0)));
+      List<?> raw = (List<?>) entry.get(1);
+      Map<String, byte[]> fields = null;
+      if (raw != null) {
+        fields = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < raw.size(); i += 2) {
+          fields.put(SafeEncoder.encode((byte[]) raw.get(i)), (byte[]) raw.get(i + 1));
+        }
+      }
+      messages.add(new StreamMessage(id, fields));
+    }
+    return messages;
+  }
+
+  /**
+   * 流中的一条消息。
+   *
+   * @param id     消息 ID
+   * @param fields 字段名到原始字节的映射；认领到已被裁剪的消息时为 null
+   */
+  public record StreamMessage(StreamEntryID id, Map<String, byte[]> fields) {
+  }
+
+  /**
+   * 带过期时间的值，用于 {@link #msetWithExpire(Map)}。
+   *
+   * @param value   值
+   * @param seconds 过期时间（秒）
+   */
+  public record Expiring(String value, int seconds) {
+  }
 }
@@ -5,9 +5,17 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mysqlclient.MySQLBuilder;
+import io.vertx.mysqlclient.MySQLConnectOptions;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PoolOptions;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 import jakarta.persistence.*;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -17,6 +25,9 @@ import java.util.Map;
 /**
  * Database helper class for managing database connections, ORM, and migrations.
  * This class uses HikariCP for connection pooling, Hibernate for ORM, and Flyway for database migrations.
+ * Hibernate, Flyway and plain JDBC callers all share the single Hikari pool, so JDBC connection capacity
+ * is configured in one place (see {@link #hikariPoolSize}).
+ * Request handlers on the event loop should use the non-blocking Vert.x MySQL pool from {@link #getPool()}.
  * It also loads environment variables using dotenv.
  *
  * @author binaryYuki
@@ -24,7 +35,10 @@ import java.util.Map;
 public class dbHelper {
 
   private static HikariDataSource dataSource;
-  private static EntityManagerFactory entityManagerFactory;
+  private static volatile EntityManagerFactory entityManagerFactory;
+  private static Pool pool;
+  private static final PoolMetrics poolMetrics = new PoolMetrics();
+  private static DatabaseQueue writeQueue;
 
   /**
    * Constructor for dbHelper.
@@ -37,21 +51,49 @@ public class dbHelper {
     // Load the .env file
     Dotenv dotenv = Dotenv.load();
 
+    int reactivePoolSize = Integer.parseInt(dotenv.get("DB_REACTIVE_POOL_SIZE", "8"));
+
     // HikariCP configuration
     HikariConfig config = new HikariConfig();
+    config.setPoolName("zephyr-hikari");
     config.setJdbcUrl("jdbc:mysql://" + dotenv.get("DB_HOST") + ":" + dotenv.get("DB_PORT") + "/" + dotenv.get("DB_NAME"));
     config.setUsername(dotenv.get("DB_USER"));
     config.setPassword(dotenv.get("DB_PWD"));
-    config.setMaximumPoolSize(2);
+    int poolSize = hikariPoolSize(dotenv, reactivePoolSize);
+    config.setMaximumPoolSize(poolSize);
+    config.setMinimumIdle(Math.min(poolSize, Integer.parseInt(dotenv.get("DB_POOL_MIN_IDLE", "2"))));
+    config.setConnectionTimeout(Long.parseLong(dotenv.get("DB_POOL_CONNECTION_TIMEOUT_MS", "30000")));
+    config.setMetricsTrackerFactory(poolMetrics);
+    // 让驱动把 JDBC batch 改写成多行 INSERT，一次往返写入整批
+    config.addDataSourceProperty("rewriteBatchedStatements", "true");
 
     dataSource = new HikariDataSource(config);
 
-    Map<String, String> properties = new HashMap<>();
-    properties.put("jakarta.persistence.jdbc.url", dotenv.get("DB_URL"));
-    properties.put("jakarta.persistence.jdbc.user", dotenv.get("DB_USER"));
-    properties.put("jakarta.persistence.jdbc.password", dotenv.get("DB_PASSWORD"));
-    // Create the EntityManagerFactory for JPA (Hibernate)
-    entityManagerFactory = Persistence.createEntityManagerFactory("ZephyrPU", properties);
+    // Create the EntityManagerFactory for JPA (Hibernate) on top of the same pool
+    entityManagerFactory = createEntityManagerFactory();
+
+    // 非阻塞连接池：查询以 Future 返回，连接上启用管线化，一个事件循环可以同时挂起大量查询
+    MySQLConnectOptions connectOptions = new MySQLConnectOptions()
+      .setHost(dotenv.get("DB_HOST"))
+      .setPort(Integer.parseInt(dotenv.get("DB_PORT")))
+      .setDatabase(dotenv.get("DB_NAME"))
+      .setUser(dotenv.get("DB_USER"))
+      .setPassword(dotenv.get("DB_PWD"))
+      .setCachePreparedStatements(true)
+      .setPipeliningLimit(Integer.parseInt(dotenv.get("DB_PIPELINING_LIMIT", "16")));
+    PoolOptions poolOptions = new PoolOptions()
+      .setMaxSize(reactivePoolSize)
+      .setMaxWaitQueueSize(Integer.parseInt(dotenv.get("DB_REACTIVE_MAX_WAIT_QUEUE", "10000")))
+      .setShared(true)
+      .setName("zephyr-mysql");
+    pool = MySQLBuilder.pool()
+      .with(poolOptions)
+      .connectingTo(connectOptions)
+      .using(vertx)
+      .build();
+
+    // 后台写入队列，使用上面的 Hikari 连接池
+    writeQueue = new DatabaseQueue("db-writes", Integer.parseInt(dotenv.get("DB_WRITE_WORKERS", "2")));
 
     // Initialize Flyway for database migration
     Flyway flyway = Flyway.configure().dataSource(dataSource).load();
@@ -59,23 +101,62 @@ public class dbHelper {
     flyway.migrate();
   }
 
+  /**
+   * Size of the shared Hikari pool.
+   * DB_POOL_SIZE wins if set; otherwise cores * 2 + 1, capped by this instance's share of the server's
+   * connection limit: DB_MAX_CONNECTIONS (MySQL default 151) / DB_APP_INSTANCES, minus the reactive pool.
+   *
+   * @param dotenv           environment
+   * @param reactivePoolSize connections held by the reactive pool of this instance
+   * @return maximum pool size, at least 2
+   */
+  static int hikariPoolSize(Dotenv dotenv, int reactivePoolSize) {
+    String configured = dotenv.get("DB_POOL_SIZE");
+    if (configured != null && !configured.isBlank()) {
+      return Integer.parseInt(configured);
+    }
+    int byCores = Runtime.getRuntime().availableProcessors() * 2 + 1;
+    int share = Integer.parseInt(dotenv.get("DB_MAX_CONNECTIONS", "151"))
+      / Math.max(1, Integer.parseInt(dotenv.get("DB_APP_INSTANCES", "1")))
+      - reactivePoolSize;
+    return Math.max(2, Math.min(byCores, share));
+  }
+
+  // Hibernate 直接使用共享的 Hikari 连接池，不再单独建立连接
+  private static EntityManagerFactory createEntityManagerFactory() {
+    if (dataSource == null || dataSource.isClosed()) {
+      throw new IllegalStateException("dbHelper has not been initialized");
+    }
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("jakarta.persistence.nonJtaDataSource", dataSource);
+    // 二级缓存和查询缓存：Caffeine JCache，各区域的容量和过期时间见 application.conf
+    boolean cacheEnabled = Boolean.parseBoolean(Dotenv.load().get("HIBERNATE_L2_CACHE", "true"));
+    properties.put("jakarta.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+    properties.put("hibernate.cache.use_second_level_cache", String.valueOf(cacheEnabled));
+    properties.put("hibernate.cache.use_query_cache", String.valueOf(cacheEnabled));
+    properties.put("hibernate.cache.region.factory_class", "jcache");
+    properties.put("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+    properties.put("hibernate.javax.cache.missing_cache_strategy", "create");
+    properties.put("hibernate.generate_statistics", "true");
+    // JDBC 批处理：同一实体的 INSERT/UPDATE 排在一起按批发送
+    properties.put("hibernate.jdbc.batch_size", Dotenv.load().get("HIBERNATE_BATCH_SIZE", "50"));
+    properties.put("hibernate.order_inserts", "true");
+    properties.put("hibernate.order_updates", "true");
+    // 表生成器取到的值作为本段的第一个 ID，和 TodoRepository 的单条取号方式一致
+    properties.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+    return Persistence.createEntityManagerFactory("ZephyrPU", properties);
+  }
+
   public static synchronized EntityManagerFactory getEntityManagerFactory() {
     if (entityManagerFactory == null || !entityManagerFactory.isOpen()) {
-      Dotenv dotenv = Dotenv.load();
-      Map<String, String> properties = new HashMap<>();
-      properties.put("jakarta.persistence.jdbc.url", dotenv.get("DB_URL"));
-      properties.put("jakarta.persistence.jdbc.user", dotenv.get("DB_USER"));
-      properties.put("jakarta.persistence.jdbc.password", dotenv.get("DB_PASSWORD"));
-
-      // 创建 EntityManagerFactory
-      entityManagerFactory = Persistence.createEntityManagerFactory("ZephyrPU", properties);
+      entityManagerFactory = createEntityManagerFactory();
     }
     return entityManagerFactory;
   }
 
 
   public EntityManager getEntityManager() {
-    return entityManagerFactory.createEntityManager();
+    return getEntityManagerFactory().createEntityManager();
   }
 
 
@@ -98,6 +179,12 @@ public class dbHelper {
 
 
   public void close() {
+    if (writeQueue != null) {
+      writeQueue.shutdown();
+    }
+    if (pool != null) {
+      pool.close();
+    }
     if (dataSource != null && !dataSource.isClosed()) {
       dataSource.close();
     }
@@ -112,6 +199,64 @@ public class dbHelper {
     return dataSource;
   }
 
+  /**
+   * Get usage metrics of the shared Hikari pool.
+   *
+   * @return pool metrics as JSON
+   */
+  public static JsonObject getPoolMetrics() {
+    return poolMetrics.snapshot();
+  }
+
+  /**
+   * Get Hibernate second-level and query cache statistics.
+   * Safe to call on the event loop: it only reads an existing open factory and never creates one.
+   *
+   * @return overall and per-region hit/miss/put counts as JSON, empty if no factory is open
+   */
+  public static JsonObject getCacheStatistics() {
+    EntityManagerFactory factory = entityManagerFactory;
+    if (factory == null || !factory.isOpen()) {
+      return new JsonObject();
+    }
+    Statistics statistics = factory.unwrap(SessionFactory.class).getStatistics();
+    JsonObject regions = new JsonObject();
+    for (String region : statistics.getSecondLevelCacheRegionNames()) {
+      CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+      regions.put(region, new JsonObject()
+        .put("hits", stats.getHitCount())
+        .put("misses", stats.getMissCount())
+        .put("puts", stats.getPutCount())
+        .put("size", stats.getElementCountInMemory()));
+    }
+    return new JsonObject()
+      .put("hits", statistics.getSecondLevelCacheHitCount())
+      .put("misses", statistics.getSecondLevelCacheMissCount())
+      .put("puts", statistics.getSecondLevelCachePutCount())
+      .put("queryHits", statistics.getQueryCacheHitCount())
+      .put("queryMisses", statistics.getQueryCacheMissCount())
+      .put("queryPuts", statistics.getQueryCachePutCount())
+      .put("regions", regions);
+  }
+
+  /**
+   * Get the queue that background JDBC writes go through.
+   *
+   * @return shared write queue
+   */
+  public static DatabaseQueue getWriteQueue() {
+    return writeQueue;
+  }
+
+  /**
+   * Get the non-blocking Vert.x MySQL pool, safe to use from the event loop.
+   *
+   * @return shared reactive pool
+   */
+  public static Pool getPool() {
+    return pool;
+  }
+
   /**
    * Asynchronous database initialization.
    * Flyway migration is already handled in the constructor.
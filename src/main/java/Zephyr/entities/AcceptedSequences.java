@@ -4,8 +4,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "accepted_sequences")
 public class AcceptedSequences {
   /*
@@ -40,11 +44,19 @@ public class AcceptedSequences {
     return list;
   }
 
+    public String getContent() {
+        return content;
+    }
+
     public void setContent(String content) {
         this.content = content;
     }
 
 
+    public String getTimeStampString() {
+        return timeStampString;
+    }
+
     public void setTimeStampString(String timeStampString) {
         this.timeStampString = timeStampString;
     }
@@ -1,13 +1,20 @@
 package Zephyr.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "todo_list")
 public class Todo {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // 按段预留 ID（见 V3__todo_id_generator.sql），插入可以走 JDBC 批处理
+  @GeneratedValue(strategy = GenerationType.TABLE, generator = "todo_id")
+  @TableGenerator(name = "todo_id", table = "id_generators", pkColumnName = "name", valueColumnName = "next_val",
+    pkColumnValue = "todo_list", allocationSize = 50)
   private Long id;
 
   @Column(name = "title", nullable = false)
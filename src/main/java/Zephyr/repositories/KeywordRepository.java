@@ -0,0 +1,58 @@
+package Zephyr.repositories;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * accepted_sequences 表的非阻塞写入，所有方法都可以直接在事件循环中调用。
+ */
+public class KeywordRepository {
+
+  private final Pool pool;
+
+  public KeywordRepository(Pool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * 累加关键词的举报次数，不存在的关键词以该次数为初始 rate 插入。
+   * 每 batchSize 个关键词一条多行 INSERT ... ON DUPLICATE KEY UPDATE，整体一个事务。
+   *
+   * @param counts    关键词 -> 本次累加的次数
+   * @param batchSize 每条语句的最大行数
+   * @return 写入的关键词数量
+   */
+  public Future<Integer> addReports(Map<String, Long> counts, int batchSize) {
+    List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+    long now = System.currentTimeMillis();
+    return pool.withTransaction(conn -> {
+      Future<Void> chain = Future.succeededFuture();
+      for (int from = 0; from < entries.size(); from += batchSize) {
+        List<Map.Entry<String, Long>> rows = entries.subList(from, Math.min(entries.size(), from + batchSize));
+        Tuple params = Tuple.tuple();
+        for (Map.Entry<String, Long> row : rows) {
+          params.addString(row.getKey())
+            .addLong(row.getValue())
+            .addLong(now)
+            .addLong(now);
+        }
+        chain = chain.compose(v -> conn.preparedQuery(upsertSql(rows.size())).execute(params).mapEmpty());
+      }
+      return chain;
+    }).map(entries.size());
+  }
+
+  private static String upsertSql(int rows) {
+    StringBuilder sql = new StringBuilder("INSERT INTO accepted_sequences (content, rate, created_at, last_updated_at) VALUES ");
+    for (int i = 0; i < rows; i++) {
+      sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+    }
+    return sql.append(" ON DUPLICATE KEY UPDATE rate = rate + VALUES(rate), last_updated_at = VALUES(last_updated_at)")
+      .toString();
+  }
+}
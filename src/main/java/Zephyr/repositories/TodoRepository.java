@@ -0,0 +1,104 @@
+package Zephyr.repositories;
+
+import Zephyr.entities.Todo;
+import io.vertx.core.Future;
+import io.vertx.mysqlclient.MySQLClient;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * todo_list 表的非阻塞访问，所有方法都可以直接在事件循环中调用。
+ */
+public class TodoRepository {
+
+  private final Pool pool;
+
+  public TodoRepository(Pool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * 按 ID 做键集分页：只取 ID 大于游标的记录，不使用 OFFSET，翻到多深都只走一次主键范围扫描。
+   *
+   * @param afterId 游标，上一页最后一条记录的 ID，第一页传 0
+   * @param limit   每页条数
+   * @return ID 升序的一页待办事项，条数少于 limit 表示已经是最后一页
+   */
+  public Future<List<Todo>> findPage(long afterId, int limit) {
+    return pool.preparedQuery("SELECT id, title, completed FROM todo_list WHERE id > ? ORDER BY id LIMIT ?")
+      .execute(Tuple.of(afterId, limit))
+      .map(TodoRepository::toTodos);
+  }
+
+  /**
+   * 新建待办事项。
+   * ID 和 Hibernate 一样从 id_generators 表分配：一条 UPDATE 取出当前值并加一，
+   * 取到的值通过 LAST_INSERT_ID 随结果返回，不需要额外的查询。
+   *
+   * @param title 标题
+   * @return 带有新 ID 的记录
+   */
+  public Future<Todo> insert(String title) {
+    return pool.query("UPDATE id_generators SET next_val = LAST_INSERT_ID(next_val) + 1 WHERE name = 'todo_list'")
+      .execute()
+      .compose(allocated -> {
+        if (allocated.rowCount() == 0) {
+          return Future.failedFuture(new IllegalStateException("id_generators has no row for todo_list"));
+        }
+        long id = allocated.property(MySQLClient.LAST_INSERTED_ID);
+        return pool.preparedQuery("INSERT INTO todo_list (id, title, completed) VALUES (?, ?, ?)")
+          .execute(Tuple.of(id, title, false))
+          .map(rows -> {
+            Todo todo = new Todo();
+            todo.setId(id);
+            todo.setTitle(title);
+            todo.setCompleted(false);
+            return todo;
+          });
+      });
+  }
+
+  /**
+   * 修改待办事项的标题。
+   *
+   * @param id    待办事项 ID
+   * @param title 新标题
+   * @return 修改后的记录，ID 不存在时为 null
+   */
+  public Future<Todo> updateTitle(long id, String title) {
+    return pool.withTransaction(conn -> conn
+      .preparedQuery("SELECT id, title, completed FROM todo_list WHERE id = ? FOR UPDATE")
+      .execute(Tuple.of(id))
+      .compose(rows -> {
+        if (rows.size() == 0) {
+          return Future.succeededFuture(null);
+        }
+        Todo todo = toTodo(rows.iterator().next());
+        todo.setTitle(title);
+        return conn.preparedQuery("UPDATE todo_list SET title = ? WHERE id = ?")
+          .execute(Tuple.of(title, id))
+          .map(todo);
+      }));
+  }
+
+  private static List<Todo> toTodos(RowSet<Row> rows) {
+    List<Todo> todos = new ArrayList<>(rows.size());
+    for (Row row : rows) {
+      todos.add(toTodo(row));
+    }
+    return todos;
+  }
+
+  private static Todo toTodo(Row row) {
+    Todo todo = new Todo();
+    todo.setId(row.getLong("id"));
+    todo.setTitle(row.getString("title"));
+    todo.setCompleted(row.getBoolean("completed"));
+    return todo;
+  }
+}
@@ -0,0 +1,198 @@
+package Zephyr.scanners;
+
+import Zephyr.DatabaseQueue;
+import Zephyr.dbHelper;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.core.streams.ReadStream;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 关键词批量导入。
+ * 请求体按行流式解析，每行是一个 JSON 对象 {"content": "...", "rate": n}，或者直接是关键词文本。
+ * 解析出的关键词攒够一批后暂停读取，每行作为一条语句提交到后台写入队列，由队列合并成 JDBC batch
+ * （配合 rewriteBatchedStatements）写入，写完再继续读取，所以内存占用只取决于批大小，与请求体大小无关。
+ * 写入失败的行只计入 failed，不影响同一批的其他行。
+ * <p>
+ * 带 rate 的行会把已有关键词的 rate 设为该值；不带 rate 的行只插入新关键词，已有关键词保持原 rate。
+ */
+public class KeywordBulkImporter {
+
+  private static final int MAX_LINE_BYTES = 64 * 1024;
+
+  private static final String UPSERT_WITH_RATE =
+    "INSERT INTO accepted_sequences (content, rate, created_at, last_updated_at) VALUES (?, ?, ?, ?)"
+      + " ON DUPLICATE KEY UPDATE rate = VALUES(rate), last_updated_at = VALUES(last_updated_at)";
+  private static final String UPSERT_KEEP_RATE =
+    "INSERT INTO accepted_sequences (content, rate, created_at, last_updated_at) VALUES (?, ?, ?, ?)"
+      + " ON DUPLICATE KEY UPDATE last_updated_at = VALUES(last_updated_at)";
+
+  private final Vertx vertx;
+  // 一批的每一行都会进入写入队列，应远小于 DB_QUEUE_CAPACITY
+  private final int batchSize;
+
+  public KeywordBulkImporter(Vertx vertx) {
+    this.vertx = vertx;
+    this.batchSize = Integer.parseInt(Dotenv.load().get("KEYWORD_IMPORT_BATCH_SIZE", "1000"));
+  }
+
+  /**
+   * 从请求体导入关键词。
+   *
+   * @param body 行分隔的请求体
+   * @return 导入统计：inserted、updated、skipped，以及写入失败的行数 failed
+   */
+  public Future<JsonObject> importFrom(ReadStream<Buffer> body) {
+    return new ImportRun(body).promise.future();
+  }
+
+  // 一次导入的状态，只在事件循环中访问
+  private final class ImportRun {
+    private final Promise<JsonObject> promise = Promise.promise();
+    private final RecordParser parser;
+    // 当前批次：关键词 -> rate（null 表示保持原 rate）
+    private Map<String, Integer> batch = new LinkedHashMap<>();
+    private Future<Void> inFlight = Future.succeededFuture();
+    private long inserted;
+    private long updated;
+    private long skipped;
+    private long failed;
+
+    ImportRun(ReadStream<Buffer> body) {
+      parser = RecordParser.newDelimited("\n", body);
+      parser.maxRecordSize(MAX_LINE_BYTES);
+      parser.exceptionHandler(promise::tryFail);
+      parser.handler(this::handleLine);
+      parser.endHandler(v -> flush().onSuccess(ok -> promise.tryComplete(new JsonObject()
+        .put("inserted", inserted)
+        .put("updated", updated)
+        .put("skipped", skipped)
+        .put("failed", failed))));
+    }
+
+    private void handleLine(Buffer record) {
+      String line = record.toString("UTF-8").trim();
+      if (line.isEmpty()) {
+        return;
+      }
+      String content;
+      Integer rate = null;
+      if (line.startsWith("{")) {
+        try {
+          JsonObject json = new JsonObject(line);
+          content = json.getString("content", json.getString("input"));
+          rate = json.getInteger("rate");
+        } catch (DecodeException | ClassCastException e) {
+          skipped++;
+          return;
+        }
+      } else {
+        content = line;
+      }
+      if (content == null || content.isBlank() || rate != null && rate < 0) {
+        skipped++;
+        return;
+      }
+      // 与 /submit/keyword 一致，关键词统一归一化后入库
+      if (batch.put(TextNormalizer.normalize(content), rate) != null) {
+        // 同一批内重复出现，后出现的覆盖前面的，记为更新
+        updated++;
+      }
+      if (batch.size() >= batchSize) {
+        // 暂停读取，等这一批写完再继续
+        parser.pause();
+        flush().onSuccess(v -> parser.resume());
+      }
+    }
+
+    private Future<Void> flush() {
+      if (batch.isEmpty()) {
+        return inFlight;
+      }
+      Map<String, Integer> rows = batch;
+      batch = new LinkedHashMap<>();
+      Context context = vertx.getOrCreateContext();
+      inFlight = inFlight
+        .compose(v -> dbHelper.getWriteQueue().submit(context, () -> findExisting(rows.keySet()), DatabaseQueue.Priority.LOW))
+        .compose(existing -> write(context, rows, existing))
+        .onFailure(promise::tryFail);
+      return inFlight;
+    }
+
+    // 每行作为一条语句提交，写入队列把相同 SQL 的连续语句合并成 JDBC batch；
+    // 带 rate 和不带 rate 的行分开提交，让同类语句在队列中相邻
+    private Future<Void> write(Context context, Map<String, Integer> rows, Set<String> existing) {
+      long now = System.currentTimeMillis();
+      List<String> contents = new ArrayList<>(rows.size());
+      List<Future<Throwable>> results = new ArrayList<>(rows.size());
+      for (boolean withRate : new boolean[]{true, false}) {
+        for (Map.Entry<String, Integer> row : rows.entrySet()) {
+          if (row.getValue() != null != withRate) {
+            continue;
+          }
+          Object[] params = {row.getKey(), withRate ? row.getValue() : 1, now, now};
+          contents.add(row.getKey());
+          results.add(dbHelper.getWriteQueue()
+            .submitStatement(context, withRate ? UPSERT_WITH_RATE : UPSERT_KEEP_RATE, params, DatabaseQueue.Priority.LOW)
+            .transform(ar -> Future.succeededFuture(ar.cause())));
+        }
+      }
+      return Future.all(results).compose(all -> {
+        Throwable lastError = null;
+        for (int i = 0; i < contents.size(); i++) {
+          Throwable error = all.resultAt(i);
+          if (error != null) {
+            failed++;
+            lastError = error;
+          } else if (existing.contains(contents.get(i))) {
+            updated++;
+          } else {
+            inserted++;
+          }
+        }
+        // 整批都失败通常是数据库不可用，不再继续读取
+        return failed > 0 && failed == contents.size() ? Future.failedFuture(lastError) : Future.succeededFuture();
+      });
+    }
+  }
+
+  // 在写入队列的线程中执行
+  // 查询本批中已存在的关键词，用于区分新增和更新
+  private static Set<String> findExisting(Set<String> contents) throws SQLException {
+    StringBuilder sql = new StringBuilder("SELECT content FROM accepted_sequences WHERE content IN (");
+    for (int i = 0; i < contents.size(); i++) {
+      sql.append(i == 0 ? "?" : ", ?");
+    }
+    sql.append(")");
+    Set<String> existing = new HashSet<>();
+    try (Connection connection = dbHelper.getDataSource().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+      int i = 1;
+      for (String content : contents) {
+        stmt.setString(i++, content);
+      }
+      ResultSet rs = stmt.executeQuery();
+      while (rs.next()) {
+        existing.add(rs.getString(1));
+      }
+    }
+    return existing;
+  }
+}
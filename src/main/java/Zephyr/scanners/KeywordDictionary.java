@@ -0,0 +1,202 @@
+package Zephyr.scanners;
+
+import Zephyr.dbHelper;
+import Zephyr.entities.AcceptedSequences;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * 关键词字典服务。
+ * 持有 accepted_sequences 的不可变快照（关键词自动机 + 版本号），扫描路径只读取
+ * volatile 引用，不加锁也不访问数据库。
+ * <p>
+ * 快照在后台刷新：关键词提交后调用 {@link #markDirty()}，或者定时轮询发现
+ * 行数或逐行校验和变化时，按 last_updated_at 高水位只增量读取变化的行，再重建自动机并发布新版本。
+ */
+public class KeywordDictionary {
+
+  private static final Logger log = LoggerFactory.getLogger(KeywordDictionary.class);
+  // 增量读取时向前回看的窗口，容忍多个实例之间的时钟偏差
+  private static final long CLOCK_SKEW_MS = 5_000;
+
+  private final Vertx vertx;
+  private final long refreshIntervalMs;
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+  private final Promise<Snapshot> ready = Promise.promise();
+  // 是否有刷新正在执行，以及执行期间是否又有新的变化
+  private final AtomicBoolean refreshing = new AtomicBoolean(false);
+  private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+  // 以下状态只在刷新任务中访问（ordered executeBlocking，同一时间只有一个刷新）
+  private final Map<Long, AcceptedSequences> rows = new HashMap<>();
+  private long highWaterMark = Long.MIN_VALUE;
+  private long rowsChecksum;
+
+  public KeywordDictionary(Vertx vertx) {
+    Dotenv dotenv = Dotenv.load();
+    this.vertx = vertx;
+    this.refreshIntervalMs = Long.parseLong(dotenv.get("KEYWORD_REFRESH_INTERVAL_MS", "5000"));
+  }
+
+  /**
+   * 加载初始快照并启动定时轮询。
+   *
+   * @return 首个快照就绪时完成
+   */
+  public Future<Snapshot> start() {
+    markDirty();
+    vertx.setPeriodic(refreshIntervalMs, id -> markDirty());
+    return ready.future();
+  }
+
+  /**
+   * @return 当前快照，无锁读取；首次加载完成前为版本 0 的空快照，调用方应拒绝扫描
+   */
+  public Snapshot current() {
+    return snapshot;
+  }
+
+  /**
+   * 通知字典关键词表可能已变化，在后台安排一次刷新。
+   * 刷新进行中时的多次通知会合并为一次额外刷新。
+   */
+  public void markDirty() {
+    dirty.set(true);
+    if (refreshing.compareAndSet(false, true)) {
+      runRefresh();
+    }
+  }
+
+  private void runRefresh() {
+    dirty.set(false);
+    vertx.<Snapshot>executeBlocking(this::refresh, true)
+      .onComplete(ar -> {
+        if (ar.succeeded()) {
+          ready.tryComplete(ar.result());
+        } else {
+          log.error("Failed to refresh keyword dictionary", ar.cause());
+        }
+        refreshing.set(false);
+        // 刷新期间又有变化，再跑一次
+        if (dirty.get() && refreshing.compareAndSet(false, true)) {
+          runRefresh();
+        }
+      });
+  }
+
+  // 在 worker 线程中执行：比较高水位和行数，只读取变化的行
+  private Snapshot refresh() throws SQLException {
+    try (Connection connection = dbHelper.getDataSource().getConnection()) {
+      long count;
+      long checksum;
+      // 行数加逐行校验和：时钟落后的实例更新已有行时，行数和 MAX(last_updated_at) 都可能不变
+      try (PreparedStatement stmt = connection.prepareStatement(
+        "SELECT COUNT(*), COALESCE(BIT_XOR(CRC32(CONCAT_WS(':', id, rate, last_updated_at))), 0)"
+          + " FROM accepted_sequences")) {
+        ResultSet rs = stmt.executeQuery();
+        rs.next();
+        count = rs.getLong(1);
+        checksum = rs.getLong(2);
+      }
+
+      Snapshot current = snapshot;
+      if (current.version() > 0 && count == rows.size() && checksum == rowsChecksum) {
+        // 没有变化，保持当前版本
+        return current;
+      }
+
+      if (count < rows.size()) {
+        // 有行被删除，增量无法感知，整表重新加载
+        rows.clear();
+        highWaterMark = Long.MIN_VALUE;
+      }
+
+      loadRows(connection, highWaterMark == Long.MIN_VALUE ? Long.MIN_VALUE : highWaterMark - CLOCK_SKEW_MS);
+      rowsChecksum = checksum(rows.values());
+      if (rows.size() != count || rowsChecksum != checksum) {
+        // 有写入时间早于回看窗口的行，退回整表加载
+        rows.clear();
+        highWaterMark = Long.MIN_VALUE;
+        loadRows(connection, Long.MIN_VALUE);
+        rowsChecksum = checksum(rows.values());
+      }
+
+      Snapshot next = new Snapshot(current.version() + 1, fingerprint(rows.values()),
+        KeywordMatcher.fromSequences(rows.values()), highWaterMark);
+      snapshot = next;
+      log.info("Keyword dictionary refreshed to version {} ({} keywords)", next.version(), next.matcher().size());
+      return next;
+    }
+  }
+
+  private void loadRows(Connection connection, long since) throws SQLException {
+    String query = "SELECT id, content, rate, last_updated_at FROM accepted_sequences WHERE last_updated_at >= ?";
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      stmt.setLong(1, since);
+      ResultSet rs = stmt.executeQuery();
+      while (rs.next()) {
+        AcceptedSequences row = new AcceptedSequences();
+        row.setId(rs.getLong("id"));
+        row.setContent(rs.getString("content"));
+        row.setRate(rs.getInt("rate"));
+        row.setTimeStampString(rs.getString("last_updated_at"));
+        rows.put(row.getId(), row);
+        highWaterMark = Math.max(highWaterMark, rs.getLong("last_updated_at"));
+      }
+    }
+  }
+
+  // 与刷新查询中 BIT_XOR(CRC32(CONCAT_WS(':', id, rate, last_updated_at))) 相同的算法
+  private static long checksum(Collection<AcceptedSequences> rows) {
+    long checksum = 0;
+    CRC32 crc = new CRC32();
+    for (AcceptedSequences row : rows) {
+      crc.reset();
+      crc.update((row.getId() + ":" + row.getRate() + ":" + row.getTimeStampString()).getBytes(StandardCharsets.UTF_8));
+      checksum ^= crc.getValue();
+    }
+    return checksum;
+  }
+
+  // 与行顺序无关的内容指纹，相同的关键词表在所有实例上得到相同的值；
+  // 混入归一化规则版本，规则变化后旧的扫描结果缓存不再命中
+  private static long fingerprint(Collection<AcceptedSequences> sequences) {
+    long fingerprint = TextNormalizer.VERSION * 0xD6E8FEB86659FD93L;
+    for (AcceptedSequences sequence : sequences) {
+      long h = sequence.getId() * 0x9E3779B97F4A7C15L
+        ^ ((long) sequence.getContent().hashCode() << 32)
+        ^ sequence.getRate();
+      h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+      h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+      fingerprint += h ^ (h >>> 31);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * 关键词字典的不可变快照。
+   *
+   * @param version       本实例内单调递增的版本号，0 表示尚未加载
+   * @param fingerprint   关键词内容指纹，跨实例一致，可用作共享缓存的键
+   * @param matcher       由该版本关键词构建的自动机
+   * @param highWaterMark 快照包含的最大 last_updated_at
+   */
+  public record Snapshot(long version, long fingerprint, KeywordMatcher matcher, long highWaterMark) {
+    static final Snapshot EMPTY = new Snapshot(0, 0, KeywordMatcher.build(Map.of()), Long.MIN_VALUE);
+  }
+}
@@ -0,0 +1,554 @@
+package Zephyr.scanners;
+
+import Zephyr.entities.AcceptedSequences;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基于 Aho-Corasick 自动机的多关键词匹配器。
+ * 自动机只在关键词表变化时构建一次，之后每次扫描只需对文本做一次线性遍历，
+ * 扫描耗时与关键词数量无关。
+ * <p>
+ * 计分规则与旧的逐行 {@code String.contains} 实现保持一致：
+ * 同一行中出现的每个关键词只计一次，分数累加该关键词的 rate；
+ * 行的划分与 {@link java.io.BufferedReader#readLine()} 相同（\n、\r、\r\n）。
+ * <p>
+ * 以归一化模式构建时，关键词和文本都经过 {@link TextNormalizer} 的 NFKC + 大小写折叠，
+ * 映射在逐字符送入自动机时查表完成。{@link Session} 也可以直接接收 UTF-8 字节，
+ * 从文件或网络缓冲区扫描时不需要先解码成字符串，扫描过程基本不分配对象。
+ * <p>
+ * 实例不可变，可以被多个线程同时使用；扫描状态保存在 {@link Session} 中。
+ */
+public final class KeywordMatcher {
+
+  /**
+   * 全文平均权重（score / lines）达到该值时判定为可疑。
+   */
+  public static final int ALARM_THRESHOLD = 10;
+
+  private static final int ROOT = 0;
+  private static final long EMPTY_EDGE = -1L;
+  private static final char REPLACEMENT = '\uFFFD';
+  private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+  // 根节点的转移直接用数组索引，绝大多数字符都停留在根节点附近
+  private final int[] rootNext;
+  // 其余转移：开放寻址哈希表，key = (节点 << 16) | 字符
+  private final long[] edgeKeys;
+  private final int[] edgeTargets;
+  private final int edgeMask;
+  // 失败指针
+  private final int[] fail;
+  // 沿失败链能到达的下一个终止节点，ROOT 表示没有
+  private final int[] outputLink;
+  // 以该节点结尾的关键词权重之和
+  private final int[] rates;
+  private final boolean[] terminal;
+  // 空关键词对每一行都成立（"".contains 恒为真）
+  private final int emptyRate;
+  private final int keywordCount;
+  // 是否对文本做归一化
+  private final boolean normalized;
+
+  private KeywordMatcher(Builder builder) {
+    int nodeCount = builder.nodeCount;
+    this.rootNext = new int[Character.MAX_VALUE + 1];
+    this.fail = new int[nodeCount];
+    this.outputLink = new int[nodeCount];
+    this.rates = Arrays.copyOf(builder.rates, nodeCount);
+    this.terminal = Arrays.copyOf(builder.terminal, nodeCount);
+    this.emptyRate = builder.emptyRate;
+    this.keywordCount = builder.keywordCount;
+    this.normalized = builder.normalized;
+    // 构建期的转移表直接复用，根节点的转移另外展开成数组
+    this.edgeKeys = builder.edgeKeys;
+    this.edgeTargets = builder.edgeTargets;
+    this.edgeMask = builder.edgeKeys.length - 1;
+    for (int child = builder.firstChild[ROOT]; child != ROOT; child = builder.nextSibling[child]) {
+      rootNext[builder.label[child]] = child;
+    }
+
+    // 按 BFS 顺序计算失败指针和输出链
+    int[] queue = new int[nodeCount];
+    int head = 0;
+    int tail = 0;
+    for (int child = builder.firstChild[ROOT]; child != ROOT; child = builder.nextSibling[child]) {
+      fail[child] = ROOT;
+      outputLink[child] = ROOT;
+      queue[tail++] = child;
+    }
+    while (head < tail) {
+      int node = queue[head++];
+      for (int child = builder.firstChild[node]; child != ROOT; child = builder.nextSibling[child]) {
+        int target = transition(fail[node], builder.label[child]);
+        fail[child] = target;
+        outputLink[child] = terminal[target] ? target : outputLink[target];
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  /**
+   * 根据关键词和权重构建精确匹配（不做归一化）的匹配器，重复的关键词权重相加。
+   *
+   * @param keywordRates 关键词 -> 权重
+   * @return 构建好的匹配器
+   */
+  public static KeywordMatcher build(Map<String, Integer> keywordRates) {
+    return build(keywordRates, false);
+  }
+
+  /**
+   * 根据关键词和权重构建匹配器，重复的关键词（归一化之后相同的也算重复）权重相加。
+   *
+   * @param keywordRates 关键词 -> 权重
+   * @param normalize    是否对关键词和文本做 NFKC + 大小写折叠
+   * @return 构建好的匹配器
+   */
+  public static KeywordMatcher build(Map<String, Integer> keywordRates, boolean normalize) {
+    Builder builder = new Builder(normalize);
+    keywordRates.forEach(builder::add);
+    return new KeywordMatcher(builder);
+  }
+
+  /**
+   * 根据 accepted_sequences 表中的记录构建归一化匹配器。
+   *
+   * @param sequences 数据表中的关键词记录
+   * @return 构建好的匹配器
+   */
+  public static KeywordMatcher fromSequences(Collection<AcceptedSequences> sequences) {
+    Map<String, Integer> keywordRates = new LinkedHashMap<>();
+    for (AcceptedSequences sequence : sequences) {
+      keywordRates.merge(sequence.getContent(), sequence.getRate(), Integer::sum);
+    }
+    return build(keywordRates, true);
+  }
+
+  /**
+   * 根据扫描结果判断是否可疑。
+   *
+   * @param counts {score, lines}
+   * @return 全文平均权重达到阈值时返回 true，空文本返回 false
+   */
+  public static boolean isAlarmed(int[] counts) {
+    return counts[1] > 0 && counts[0] / counts[1] >= ALARM_THRESHOLD;
+  }
+
+  /**
+   * @return 自动机中不同关键词的数量
+   */
+  public int size() {
+    return keywordCount;
+  }
+
+  /**
+   * 创建一次新的扫描会话。
+   *
+   * @return 新的扫描会话
+   */
+  public Session newSession() {
+    return new Session();
+  }
+
+  /**
+   * 扫描一个字符流，返回 {分数, 行数}，与 processFile 的返回值格式相同。
+   *
+   * @param reader 待扫描的文本
+   * @return {score, lines}
+   * @throws IOException 读取失败时抛出
+   */
+  public int[] scan(Reader reader) throws IOException {
+    Session session = newSession();
+    char[] buffer = new char[8192];
+    int n;
+    while ((n = reader.read(buffer)) != -1) {
+      session.feed(buffer, 0, n);
+    }
+    return session.finish();
+  }
+
+  /**
+   * 扫描一个 UTF-8 字节通道（例如文件），只分配一个读缓冲区。
+   *
+   * @param channel 待扫描的数据
+   * @return {score, lines}
+   * @throws IOException 读取失败时抛出
+   */
+  public int[] scan(ReadableByteChannel channel) throws IOException {
+    Session session = newSession();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+    while (channel.read(buffer) != -1) {
+      buffer.flip();
+      session.feed(buffer);
+      buffer.clear();
+    }
+    return session.finish();
+  }
+
+  /**
+   * 扫描一段内存中的文本。
+   *
+   * @param text 待扫描的文本
+   * @return {score, lines}
+   */
+  public int[] scan(CharSequence text) {
+    Session session = newSession();
+    session.feed(text);
+    return session.finish();
+  }
+
+  private int transition(int node, char c) {
+    while (true) {
+      if (node == ROOT) {
+        return rootNext[c];
+      }
+      int next = edge(node, c);
+      if (next >= 0) {
+        return next;
+      }
+      node = fail[node];
+    }
+  }
+
+  private int edge(int node, char c) {
+    return lookup(edgeKeys, edgeTargets, ((long) node << 16) | c);
+  }
+
+  // 在开放寻址表中查找 key，找不到返回 -1
+  private static int lookup(long[] keys, int[] targets, long key) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key) {
+        return targets[i];
+      }
+      if (k == EMPTY_EDGE) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  private static void insert(long[] keys, int[] targets, long key, int target) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    while (keys[i] != EMPTY_EDGE) {
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    targets[i] = target;
+  }
+
+  private static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * 一次扫描的可变状态。匹配状态会跨越多次 feed 调用保留，
+   * 因此文本可以分块送入。会话不是线程安全的。
+   * <p>
+   * 字节和字符两种送入方式不要混用：被分块边界截断的 UTF-8 多字节字符会保留到下一块继续解码，
+   * 非法的字节序列按 U+FFFD 处理。
+   */
+  public final class Session {
+    private int state = ROOT;
+    private int score;
+    private int lines;
+    // 当前行是否已有字符
+    private boolean lineOpen;
+    // 上一个字符是 \r，用于把 \r\n 当作一个换行
+    private boolean pendingCr;
+    // 当前行已经计过分的终止节点
+    private int[] lineHits = new int[16];
+    private int hitCount;
+    private int[] hitTable = new int[32];
+    // UTF-8 解码状态：当前正在拼接的码点，以及还差几个后续字节
+    private int codePoint;
+    private int remaining;
+
+    private Session() {
+    }
+
+    public void feed(char[] chars, int offset, int length) {
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        feed(chars[i]);
+      }
+    }
+
+    public void feed(CharSequence text) {
+      for (int i = 0, n = text.length(); i < n; i++) {
+        feed(text.charAt(i));
+      }
+    }
+
+    public void feed(char c) {
+      if (pendingCr) {
+        pendingCr = false;
+        if (c == '\n') {
+          return;
+        }
+      }
+      if (c == '\n' || c == '\r') {
+        endLine();
+        pendingCr = c == '\r';
+        return;
+      }
+      lineOpen = true;
+      if (!normalized) {
+        step(c);
+        return;
+      }
+      char[] expanded = TextNormalizer.expansion(c);
+      if (expanded == null) {
+        step(TextNormalizer.fold(c));
+      } else {
+        for (char e : expanded) {
+          step(e);
+        }
+      }
+    }
+
+    /**
+     * 送入 UTF-8 字节。
+     *
+     * @param bytes  数据
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        feed(bytes[i]);
+      }
+    }
+
+    /**
+     * 送入 ByteBuffer 中从 position 到 limit 的 UTF-8 数据（例如内存映射的文件区域），
+     * 读取后 position 移动到 limit。
+     *
+     * @param buffer 待扫描的数据
+     */
+    public void feed(ByteBuffer buffer) {
+      if (buffer.hasArray()) {
+        feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      } else {
+        for (int i = buffer.position(), end = buffer.limit(); i < end; i++) {
+          feed(buffer.get(i));
+        }
+      }
+      buffer.position(buffer.limit());
+    }
+
+    /**
+     * 送入一个 UTF-8 字节。
+     *
+     * @param b 数据
+     */
+    public void feed(byte b) {
+      int u = b & 0xFF;
+      if (remaining > 0) {
+        if ((u & 0xC0) == 0x80) {
+          codePoint = (codePoint << 6) | (u & 0x3F);
+          if (--remaining == 0) {
+            emit(codePoint);
+          }
+          return;
+        }
+        // 后续字节缺失，丢弃已拼接的部分，当前字节按新字符处理
+        remaining = 0;
+        feed(REPLACEMENT);
+      }
+      if (u < 0x80) {
+        feed((char) u);
+      } else if (u >= 0xC2 && u < 0xE0) {
+        codePoint = u & 0x1F;
+        remaining = 1;
+      } else if (u >= 0xE0 && u < 0xF0) {
+        codePoint = u & 0x0F;
+        remaining = 2;
+      } else if (u >= 0xF0 && u < 0xF5) {
+        codePoint = u & 0x07;
+        remaining = 3;
+      } else {
+        feed(REPLACEMENT);
+      }
+    }
+
+    private void emit(int cp) {
+      if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+        feed(Character.isSurrogate((char) cp) ? REPLACEMENT : (char) cp);
+      } else if (cp <= Character.MAX_CODE_POINT) {
+        feed(Character.highSurrogate(cp));
+        feed(Character.lowSurrogate(cp));
+      } else {
+        feed(REPLACEMENT);
+      }
+    }
+
+    private void step(char c) {
+      int s = transition(state, c);
+      state = s;
+      for (int t = terminal[s] ? s : outputLink[s]; t != ROOT; t = outputLink[t]) {
+        hit(t);
+      }
+    }
+
+    /**
+     * 结束扫描并返回结果。
+     *
+     * @return {score, lines}
+     */
+    public int[] finish() {
+      if (remaining > 0) {
+        // 数据在多字节字符中间结束
+        remaining = 0;
+        feed(REPLACEMENT);
+      }
+      if (lineOpen) {
+        endLine();
+      }
+      return new int[]{score, lines};
+    }
+
+    private void endLine() {
+      score += emptyRate;
+      lines++;
+      lineOpen = false;
+      state = ROOT;
+      if (hitCount > 0) {
+        Arrays.fill(hitTable, 0);
+        hitCount = 0;
+      }
+    }
+
+    private void hit(int node) {
+      int i = slot(node);
+      if (hitTable[i] == node) {
+        return;
+      }
+      hitTable[i] = node;
+      score += rates[node];
+      if (hitCount == lineHits.length) {
+        lineHits = Arrays.copyOf(lineHits, hitCount * 2);
+      }
+      lineHits[hitCount++] = node;
+      if (hitCount * 2 > hitTable.length) {
+        int[] old = lineHits;
+        hitTable = new int[hitTable.length * 2];
+        for (int j = 0; j < hitCount; j++) {
+          hitTable[slot(old[j])] = old[j];
+        }
+      }
+    }
+
+    // 在 hitTable 中查找 node 所在或应插入的位置（节点编号从 1 开始，0 表示空槽）
+    private int slot(int node) {
+      int mask = hitTable.length - 1;
+      int i = mix(node) & mask;
+      while (hitTable[i] != 0 && hitTable[i] != node) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+  }
+
+  /**
+   * 构建期使用的可增长 trie，子节点通过开放寻址表查找，
+   * 避免根节点下大量中文字符时的线性查找。
+   */
+  private static final class Builder {
+    private final boolean normalized;
+    private int nodeCount = 1;
+    private int keywordCount;
+    private int emptyRate;
+    private char[] label = new char[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    private int[] rates = new int[64];
+    private boolean[] terminal = new boolean[64];
+    private long[] edgeKeys = emptyEdges(128);
+    private int[] edgeTargets = new int[128];
+
+    Builder(boolean normalized) {
+      this.normalized = normalized;
+    }
+
+    void add(String keyword, Integer rate) {
+      if (keyword == null || rate == null) {
+        return;
+      }
+      if (normalized) {
+        keyword = TextNormalizer.normalize(keyword);
+      }
+      if (keyword.isEmpty()) {
+        emptyRate += rate;
+        keywordCount++;
+        return;
+      }
+      int node = ROOT;
+      for (int i = 0; i < keyword.length(); i++) {
+        node = child(node, keyword.charAt(i));
+      }
+      if (!terminal[node]) {
+        terminal[node] = true;
+        keywordCount++;
+      }
+      rates[node] += rate;
+    }
+
+    private int child(int node, char c) {
+      long key = ((long) node << 16) | c;
+      int existing = lookup(edgeKeys, edgeTargets, key);
+      if (existing >= 0) {
+        return existing;
+      }
+      if (nodeCount == label.length) {
+        int capacity = nodeCount * 2;
+        label = Arrays.copyOf(label, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        rates = Arrays.copyOf(rates, capacity);
+        terminal = Arrays.copyOf(terminal, capacity);
+      }
+      int created = nodeCount++;
+      label[created] = c;
+      nextSibling[created] = firstChild[node];
+      firstChild[node] = created;
+      // 装载因子保持在 1/2 以下
+      if (created * 2 > edgeKeys.length) {
+        rehash(edgeKeys.length * 2);
+      }
+      insert(edgeKeys, edgeTargets, key, created);
+      return created;
+    }
+
+    private void rehash(int capacity) {
+      long[] oldKeys = edgeKeys;
+      int[] oldTargets = edgeTargets;
+      edgeKeys = emptyEdges(capacity);
+      edgeTargets = new int[capacity];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != EMPTY_EDGE) {
+          insert(edgeKeys, edgeTargets, oldKeys[i], oldTargets[i]);
+        }
+      }
+    }
+
+    private static long[] emptyEdges(int capacity) {
+      long[] keys = new long[capacity];
+      Arrays.fill(keys, EMPTY_EDGE);
+      return keys;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package Zephyr.scanners;
+
+import Zephyr.repositories.KeywordRepository;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 关键词举报聚合器。
+ * 举报先在内存中按关键词累加（LongAdder 分段计数，热点关键词不会互相争用），
+ * 再由定时任务通过 {@link KeywordRepository} 把累计值批量写入 accepted_sequences，每批是一条多行
+ * INSERT ... ON DUPLICATE KEY UPDATE，取代每次举报一次 SELECT + UPDATE/INSERT。写入是非阻塞的。
+ * <p>
+ * 数据最多滞后 KEYWORD_FLUSH_INTERVAL_MS（默认 1 秒）；待写入的关键词达到一批时会提前刷新。
+ * 写入失败的计数会放回内存，在下一次刷新时重试。
+ */
+public class KeywordReportAggregator {
+
+  private static final Logger log = LoggerFactory.getLogger(KeywordReportAggregator.class);
+
+  private final Vertx vertx;
+  private final KeywordRepository repository;
+  private final long flushIntervalMs;
+  private final int batchSize;
+  // 刷新成功后的回调，用于通知关键词字典
+  private final Runnable onFlushed;
+  private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+  private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+  public KeywordReportAggregator(Vertx vertx, KeywordRepository repository, Runnable onFlushed) {
+    Dotenv dotenv = Dotenv.load();
+    this.vertx = vertx;
+    this.repository = repository;
+    this.onFlushed = onFlushed;
+    this.flushIntervalMs = Long.parseLong(dotenv.get("KEYWORD_FLUSH_INTERVAL_MS", "1000"));
+    this.batchSize = Integer.parseInt(dotenv.get("KEYWORD_FLUSH_BATCH_SIZE", "500"));
+  }
+
+  /**
+   * 启动定时刷新。
+   */
+  public void start() {
+    vertx.setPeriodic(flushIntervalMs, id -> flush());
+  }
+
+  /**
+   * 记录一次举报，只操作内存，可以在事件循环中调用。
+   *
+   * @param keyword 被举报的关键词
+   * @return 该关键词尚未写入数据库的举报次数
+   */
+  public long report(String keyword) {
+    add(keyword, 1);
+    if (pending.size() >= batchSize) {
+      flush();
+    }
+    LongAdder adder = pending.get(keyword);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  private void add(String keyword, long count) {
+    LongAdder adder = pending.computeIfAbsent(keyword, k -> new LongAdder());
+    adder.add(count);
+    if (pending.get(keyword) != adder) {
+      // 计数器在累加前后被刷新任务移除了，把还没被取走的部分转移到新的计数器
+      long orphaned = adder.sumThenReset();
+      if (orphaned > 0) {
+        add(keyword, orphaned);
+      }
+    }
+  }
+
+  /**
+   * 把内存中累计的举报写入数据库。同一时间只有一个刷新在执行。
+   *
+   * @return 本次写入的关键词数量
+   */
+  public Future<Integer> flush() {
+    if (!flushing.compareAndSet(false, true)) {
+      return Future.succeededFuture(0);
+    }
+    Map<String, Long> batch = drain();
+    if (batch.isEmpty()) {
+      flushing.set(false);
+      return Future.succeededFuture(0);
+    }
+    return repository.addReports(batch, batchSize)
+      .onSuccess(n -> onFlushed.run())
+      .onFailure(err -> {
+        log.error("Failed to flush {} keyword reports, will retry", batch.size(), err);
+        batch.forEach(this::add);
+      })
+      .onComplete(ar -> flushing.set(false));
+  }
+
+  // 取走所有计数；上一轮以来没有新举报的计数器从表中移除，避免无限增长
+  private Map<String, Long> drain() {
+    Map<String, Long> batch = new HashMap<>();
+    for (Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+      LongAdder adder = entry.getValue();
+      long count = adder.sumThenReset();
+      if (count == 0 && pending.remove(entry.getKey(), adder)) {
+        // 移除之后再取一次，收回移除前最后一刻的累加
+        count = adder.sumThenReset();
+      }
+      if (count > 0) {
+        batch.put(entry.getKey(), count);
+      }
+    }
+    return batch;
+  }
+}
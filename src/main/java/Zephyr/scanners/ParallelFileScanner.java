@@ -0,0 +1,159 @@
+package Zephyr.scanners;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 大文件并行扫描器。
+ * 把已落盘的文件按行边界切成若干块，每块单独做内存映射，在 ForkJoinPool 上并行扫描，
+ * 最后把各块的 {score, lines} 相加，结果与 processFile 完全一致。
+ * <p>
+ * 块总是在 '\n' 之后结束，所以 \r\n 不会被拆开，UTF-8 多字节字符也不会被截断
+ * （0x0A 不会出现在多字节序列中），每一块都可以从自动机的根状态开始独立扫描。
+ */
+public class ParallelFileScanner {
+
+  // 每块的最小字节数，太小的块调度开销大于收益
+  private static final long MIN_CHUNK_BYTES = 1 << 20;
+  // 每块的最大字节数，单次内存映射不能超过 2 GB
+  private static final long MAX_CHUNK_BYTES = 256L << 20;
+  // 查找行边界时每次映射的窗口大小
+  private static final int BOUNDARY_WINDOW = 64 * 1024;
+
+  private final ForkJoinPool pool;
+  private final long minChunkBytes;
+
+  public ParallelFileScanner(int parallelism) {
+    this(new ForkJoinPool(parallelism), MIN_CHUNK_BYTES);
+  }
+
+  ParallelFileScanner(ForkJoinPool pool, long minChunkBytes) {
+    this.pool = pool;
+    this.minChunkBytes = minChunkBytes;
+  }
+
+  /**
+   * 在扫描线程池上异步扫描文件。
+   *
+   * @param file    待扫描的文件
+   * @param matcher 关键词自动机
+   * @return {score, lines}
+   */
+  public CompletableFuture<int[]> scanAsync(Path file, KeywordMatcher matcher) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return scan(file, matcher);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, pool);
+  }
+
+  /**
+   * 同步扫描文件，各块在扫描线程池上并行执行。
+   *
+   * @param file    待扫描的文件
+   * @param matcher 关键词自动机
+   * @return {score, lines}
+   * @throws IOException 读取文件失败时抛出
+   */
+  public int[] scan(Path file, KeywordMatcher matcher) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<long[]> chunks = split(channel);
+      if (chunks.isEmpty()) {
+        return new int[]{0, 0};
+      }
+      ChunkTask task = new ChunkTask(channel, chunks, 0, chunks.size(), matcher);
+      // 已经在扫描线程池中（scanAsync）时直接执行，否则提交到线程池
+      if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == pool) {
+        return task.invoke();
+      }
+      return pool.invoke(task);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  // 按行边界切分文件，返回 [start, end) 列表
+  private List<long[]> split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    long chunkBytes = Math.min(MAX_CHUNK_BYTES, Math.max(minChunkBytes, size / (pool.getParallelism() * 4L)));
+    List<long[]> chunks = new ArrayList<>();
+    long start = 0;
+    while (start < size) {
+      long end = Math.min(size, start + chunkBytes);
+      if (end < size) {
+        end = nextLineStart(channel, end, size);
+      }
+      chunks.add(new long[]{start, end});
+      start = end;
+    }
+    return chunks;
+  }
+
+  // 从 position 开始查找下一个 '\n'，返回其后一个字节的位置；找不到时返回文件末尾
+  private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+    while (position < size) {
+      int window = (int) Math.min(BOUNDARY_WINDOW, size - position);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+      for (int i = 0; i < window; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += window;
+    }
+    return size;
+  }
+
+  private static final class ChunkTask extends RecursiveTask<int[]> {
+    private final FileChannel channel;
+    private final List<long[]> chunks;
+    private final int from;
+    private final int to;
+    private final KeywordMatcher matcher;
+
+    ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to, KeywordMatcher matcher) {
+      this.channel = channel;
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+      this.matcher = matcher;
+    }
+
+    @Override
+    protected int[] compute() {
+      if (to - from == 1) {
+        return scanChunk(chunks.get(from));
+      }
+      int mid = (from + to) >>> 1;
+      ChunkTask left = new ChunkTask(channel, chunks, from, mid, matcher);
+      ChunkTask right = new ChunkTask(channel, chunks, mid, to, matcher);
+      left.fork();
+      int[] r = right.compute();
+      int[] l = left.join();
+      return new int[]{l[0] + r[0], l[1] + r[1]};
+    }
+
+    private int[] scanChunk(long[] chunk) {
+      try {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+        KeywordMatcher.Session session = matcher.newSession();
+        session.feed(buffer);
+        return session.finish();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package Zephyr.scanners;
+
+import Zephyr.DatabaseQueue;
+import Zephyr.IdGenerator;
+import Zephyr.dbHelper;
+import Zephyr.caches.AsyncValKey;
+import Zephyr.caches.Tasks;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步扫描任务。
+ * 提交时把待扫描的文件移到 Zephyr/jobs 并立即返回任务 ID，扫描在 {@link DatabaseQueue}
+ * 的固定大小线程池中执行；任务状态和结果通过 {@link Tasks} 写入 ValKey 并设置过期时间，
+ * 客户端轮询状态接口获取结果，HTTP 请求不再需要一直挂起等待扫描完成。
+ * <p>
+ * 排队中的任务数有上限，超过后拒绝新的提交。
+ */
+public class ScanJobService {
+
+  private static final Logger log = LoggerFactory.getLogger(ScanJobService.class);
+  private static final String KEY_PREFIX = "zephyr:scan:job:";
+  private static final Path JOBS_DIR = Paths.get("Zephyr", "jobs");
+
+  private final Vertx vertx;
+  private final AsyncValKey valKey;
+  private final KeywordDictionary dictionary;
+  private final ScanResultCache scanCache;
+  private final ParallelFileScanner scanner;
+  private final DatabaseQueue workers;
+  private final int maxPending;
+  private final int ttlSeconds;
+  // 已提交但尚未完成的任务数
+  private final AtomicInteger pending = new AtomicInteger();
+
+  public ScanJobService(Vertx vertx, KeywordDictionary dictionary, ScanResultCache scanCache, ParallelFileScanner scanner) {
+    Dotenv dotenv = Dotenv.load();
+    this.vertx = vertx;
+    this.valKey = new AsyncValKey(vertx);
+    this.dictionary = dictionary;
+    this.scanCache = scanCache;
+    this.scanner = scanner;
+    this.maxPending = Integer.parseInt(dotenv.get("SCAN_JOB_MAX_PENDING", "100"));
+    // 队列容量与名额一致，入队在事件循环中进行，不能阻塞或在调用线程中执行
+    this.workers = new DatabaseQueue("scan-jobs", Integer.parseInt(dotenv.get("SCAN_JOB_WORKERS", "2")),
+      maxPending, DatabaseQueue.OverflowPolicy.REJECT, 1, dbHelper::getDataSource);
+    this.ttlSeconds = Integer.parseInt(dotenv.get("SCAN_JOB_TTL_SECONDS", "3600"));
+  }
+
+  /**
+   * 提交一个已落盘的文件，文件会被移动到任务目录，扫描完成后删除。
+   *
+   * @param stagedFile BodyHandler 保存的上传文件
+   * @return 任务 ID；队列已满时失败
+   */
+  public Future<String> submit(Path stagedFile) {
+    if (!reserve()) {
+      return Future.failedFuture(new IllegalStateException("Scan job queue is full"));
+    }
+    String jobId = IdGenerator.generateRequestId();
+    Path jobFile = JOBS_DIR.resolve(jobId + ".txt");
+    return vertx.fileSystem().mkdirs(JOBS_DIR.toString())
+      .compose(v -> vertx.fileSystem().move(stagedFile.toString(), jobFile.toString()))
+      .compose(v -> enqueue(jobId, jobFile))
+      .onFailure(err -> abandon(jobFile));
+  }
+
+  /**
+   * 提交一段请求体文本。
+   *
+   * @param text 待扫描的文本
+   * @return 任务 ID；队列已满时失败
+   */
+  public Future<String> submit(Buffer text) {
+    if (!reserve()) {
+      return Future.failedFuture(new IllegalStateException("Scan job queue is full"));
+    }
+    String jobId = IdGenerator.generateRequestId();
+    Path jobFile = JOBS_DIR.resolve(jobId + ".txt");
+    return vertx.fileSystem().mkdirs(JOBS_DIR.toString())
+      .compose(v -> vertx.fileSystem().writeFile(jobFile.toString(), text))
+      .compose(v -> enqueue(jobId, jobFile))
+      .onFailure(err -> abandon(jobFile));
+  }
+
+  /**
+   * 查询任务状态。
+   *
+   * @param jobId 任务 ID
+   * @return 任务状态，任务不存在或已过期时为 null
+   */
+  public Future<JsonObject> status(String jobId) {
+    return valKey.execute(() -> {
+      Tasks task = Tasks.getFromValKey(KEY_PREFIX + jobId);
+      if (task == null || !(task.getValue() instanceof Map<?, ?> value)) {
+        return null;
+      }
+      @SuppressWarnings("unchecked")
+      Map<String, Object> state = (Map<String, Object>) value;
+      return new JsonObject(state);
+    });
+  }
+
+  /**
+   * 批量查询任务状态，所有任务一次 MGET 读出。
+   *
+   * @param jobIds 任务 ID
+   * @return 任务 ID 到状态的映射，不存在或已过期的任务为 null
+   */
+  public Future<JsonObject> statuses(List<String> jobIds) {
+    return valKey.execute(() -> {
+      List<Tasks> tasks = Tasks.getAllFromValKey(jobIds.stream().map(jobId -> KEY_PREFIX + jobId).toList());
+      JsonObject result = new JsonObject();
+      for (int i = 0; i < jobIds.size(); i++) {
+        Tasks task = tasks.get(i);
+        if (task != null && task.getValue() instanceof Map<?, ?> value) {
+          @SuppressWarnings("unchecked")
+          Map<String, Object> state = (Map<String, Object>) value;
+          result.put(jobIds.get(i), new JsonObject(state));
+        } else {
+          result.putNull(jobIds.get(i));
+        }
+      }
+      return result;
+    });
+  }
+
+  private boolean reserve() {
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  // 先写入 queued 状态再入队，保证返回任务 ID 之后立即轮询也能查到。
+  // 超时只作用于 ValKey 写入，入队在事件循环中进行，超时失败的任务不会再被执行
+  private Future<String> enqueue(String jobId, Path jobFile) {
+    Map<String, Object> state = new LinkedHashMap<>();
+    state.put("jobId", jobId);
+    state.put("status", "queued");
+    state.put("submittedAt", System.currentTimeMillis());
+    return valKey.execute(() -> {
+      save(jobId, state);
+      return null;
+    }).compose(v -> {
+      CompletableFuture<Object> queued = workers.submit(
+        Executors.callable(() -> run(jobId, jobFile, state)), DatabaseQueue.Priority.NORMAL);
+      // 队列容量等于 maxPending 且拒绝策略为 REJECT，拒绝是同步完成的
+      if (queued.isCompletedExceptionally()) {
+        return Future.failedFuture(new IllegalStateException("Scan job queue is full"));
+      }
+      return Future.succeededFuture(jobId);
+    });
+  }
+
+  // 提交失败：释放名额并删除已经落盘的任务文件
+  private void abandon(Path jobFile) {
+    pending.decrementAndGet();
+    vertx.fileSystem().delete(jobFile.toString())
+      .onFailure(err -> log.debug("Job file {} was not created: {}", jobFile, err.getMessage()));
+  }
+
+  // 在 DatabaseQueue 的线程中执行
+  private void run(String jobId, Path jobFile, Map<String, Object> state) {
+    try {
+      state.put("status", "running");
+      save(jobId, state);
+      KeywordDictionary.Snapshot snapshot = dictionary.current();
+      if (snapshot.version() == 0) {
+        // 空字典会得到错误的 unalarmed 结果，并以指纹 0 写入缓存
+        throw new IllegalStateException("Keyword dictionary is not loaded yet");
+      }
+      ScanResultCache.Lookup lookup = scanCache.getOrScan(snapshot, jobFile, f -> scanner.scan(f, snapshot.matcher()));
+      int[] counts = lookup.counts();
+      state.put("status", "done");
+      state.put("result", KeywordMatcher.isAlarmed(counts) ? "alarmed" : "unalarmed");
+      state.put("score", counts[0]);
+      state.put("lines", counts[1]);
+      state.put("cached", lookup.cached());
+    } catch (Exception e) {
+      log.error("Scan job {} failed", jobId, e);
+      state.put("status", "failed");
+      state.put("message", e.getMessage());
+    } finally {
+      state.put("finishedAt", System.currentTimeMillis());
+      try {
+        save(jobId, state);
+        Files.deleteIfExists(jobFile);
+      } catch (Exception e) {
+        log.error("Failed to finalize scan job {}", jobId, e);
+      }
+      pending.decrementAndGet();
+    }
+  }
+
+  private void save(String jobId, Map<String, Object> state) {
+    new Tasks(KEY_PREFIX + jobId, state).saveToValKeyWithExpire(ttlSeconds);
+  }
+}
@@ -0,0 +1,94 @@
+package Zephyr.scanners;
+
+import Zephyr.caches.TieredCache;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * 扫描结果缓存。
+ * 以 "上传内容的 SHA-256 + 关键词字典指纹" 为键缓存 {score, lines}，
+ * 存放在 {@link TieredCache} 的 scan 命名空间中（L1 Caffeine + L2 ValKey），重复上传的文件只需计算一次哈希即可得到结果。
+ * <p>
+ * 字典变化后指纹随之变化，旧条目不会再被命中，依赖 L1 淘汰和 L2 的 TTL 自然过期。
+ * ValKey 访问是阻塞的，只能在 worker 线程中调用。
+ */
+public class ScanResultCache {
+
+  private final TieredCache cache;
+
+  public ScanResultCache() {
+    Dotenv dotenv = Dotenv.load();
+    this.cache = TieredCache.namespace("scan",
+      Duration.ofSeconds(Long.parseLong(dotenv.get("SCAN_CACHE_TTL_SECONDS", "3600"))),
+      Long.parseLong(dotenv.get("SCAN_CACHE_MAX_ENTRIES", "10000")));
+  }
+
+  /**
+   * 查询缓存，未命中时执行扫描并写入缓存。
+   *
+   * @param snapshot 本次扫描使用的字典快照
+   * @param file     待扫描的文件
+   * @param scanner  未命中时执行的扫描
+   * @return 扫描结果以及是否命中缓存
+   * @throws IOException 读取文件失败时抛出
+   */
+  public Lookup getOrScan(KeywordDictionary.Snapshot snapshot, Path file, FileScan scanner) throws IOException {
+    String key = Long.toHexString(snapshot.fingerprint()) + ":" + sha256(file);
+    String value = cache.get(key);
+    if (value != null) {
+      int comma = value.indexOf(',');
+      return new Lookup(new int[]{Integer.parseInt(value.substring(0, comma)), Integer.parseInt(value.substring(comma + 1))}, true);
+    }
+    int[] counts = scanner.scan(file);
+    // 键由字典指纹和内容哈希决定，值不会变化，不需要广播失效
+    cache.putImmutable(key, counts[0] + "," + counts[1]);
+    return new Lookup(counts, false);
+  }
+
+  /**
+   * 计算文件内容的 SHA-256。
+   *
+   * @param file 文件路径
+   * @return 十六进制摘要
+   * @throws IOException 读取文件失败时抛出
+   */
+  public static String sha256(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(file)) {
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, n);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * 对文件执行一次实际扫描。
+   */
+  @FunctionalInterface
+  public interface FileScan {
+    int[] scan(Path file) throws IOException;
+  }
+
+  /**
+   * @param counts {score, lines}
+   * @param cached 是否来自缓存
+   */
+  public record Lookup(int[] counts, boolean cached) {
+  }
+}
@@ -0,0 +1,61 @@
+package Zephyr.scanners;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 流式扫描：把请求体分块直接送入关键词自动机，不落盘也不缓存整段文本。
+ * <p>
+ * 字节直接送入 {@link KeywordMatcher.Session}，由会话完成 UTF-8 解码并跨块保留匹配状态，
+ * 被分块边界截断的多字节字符会在下一块继续解码。实例不是线程安全的。
+ */
+public class StreamingScan {
+
+  private final KeywordMatcher.Session session;
+  private long bytes;
+
+  public StreamingScan(KeywordMatcher matcher) {
+    this.session = matcher.newSession();
+  }
+
+  /**
+   * 送入下一块数据。
+   *
+   * @param chunk 请求体的一个分块
+   */
+  public void feed(Buffer chunk) {
+    int length = chunk.length();
+    for (int i = 0; i < length; i++) {
+      session.feed(chunk.getByte(i));
+    }
+    bytes += length;
+  }
+
+  /**
+   * 送入 ByteBuffer 中从 position 到 limit 的数据（例如内存映射的文件区域），
+   * 读取后 position 移动到 limit。
+   *
+   * @param buffer 待扫描的数据
+   */
+  public void feed(ByteBuffer buffer) {
+    bytes += buffer.remaining();
+    session.feed(buffer);
+  }
+
+  /**
+   * @return 目前已送入的字节数
+   */
+  public long bytes() {
+    return bytes;
+  }
+
+  /**
+   * 结束扫描。
+   *
+   * @return {score, lines}
+   */
+  public int[] finish() {
+    return session.finish();
+  }
+}
@@ -0,0 +1,91 @@
+package Zephyr.scanners;
+
+import java.text.Normalizer;
+
+/**
+ * 关键词匹配使用的字符归一化：NFKC 兼容分解（全角转半角、兼容字符展开等）之后再做大小写折叠。
+ * <p>
+ * 归一化按单个 UTF-16 字符查表完成，映射表在类加载时一次性生成，匹配时不分配任何对象。
+ * 因为是逐字符映射，不会把 "e" + 组合重音符合成为 "é"；关键词和文本经过同一张表，
+ * 两边的结果总是一致的。代理对（BMP 以外的字符）保持原样。
+ */
+public final class TextNormalizer {
+
+  /**
+   * 映射规则的版本，规则变化后需要递增，使依赖匹配结果的缓存失效。
+   */
+  public static final int VERSION = 1;
+
+  // 字符 -> 归一化后的单个字符
+  private static final char[] FOLD = new char[Character.MAX_VALUE + 1];
+  // 归一化后变成多个字符的（如 "ﬁ" -> "fi"、"㎏" -> "kg"），其余为 null
+  private static final char[][] EXPANSIONS = new char[Character.MAX_VALUE + 1][];
+
+  static {
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      if (Character.isSurrogate((char) c)) {
+        FOLD[c] = (char) c;
+        continue;
+      }
+      String folded = foldCase(Normalizer.normalize(String.valueOf((char) c), Normalizer.Form.NFKC));
+      if (folded.length() == 1) {
+        FOLD[c] = folded.charAt(0);
+      } else {
+        EXPANSIONS[c] = folded.toCharArray();
+      }
+    }
+    // 换行符决定行的划分，不能被映射成别的字符，其他字符也不能映射成换行符
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      if (c == '\n' || c == '\r' || FOLD[c] == '\n' || FOLD[c] == '\r') {
+        FOLD[c] = (char) c;
+        EXPANSIONS[c] = null;
+      }
+    }
+  }
+
+  private TextNormalizer() {
+  }
+
+  /**
+   * @param c 原字符
+   * @return 归一化后的字符；该字符会展开成多个字符时结果无意义，需先检查 {@link #expansion(char)}
+   */
+  public static char fold(char c) {
+    return FOLD[c];
+  }
+
+  /**
+   * @param c 原字符
+   * @return 归一化后展开成的多个字符，不展开时返回 null；返回的数组不可修改
+   */
+  public static char[] expansion(char c) {
+    return EXPANSIONS[c];
+  }
+
+  /**
+   * 归一化一段文本，用于关键词入库和构建自动机。
+   *
+   * @param text 原文本
+   * @return 归一化后的文本
+   */
+  public static String normalize(CharSequence text) {
+    StringBuilder sb = new StringBuilder(text.length());
+    for (int i = 0, n = text.length(); i < n; i++) {
+      char c = text.charAt(i);
+      char[] expanded = EXPANSIONS[c];
+      if (expanded == null) {
+        sb.append(FOLD[c]);
+      } else {
+        sb.append(expanded);
+      }
+    }
+    return sb.toString();
+  }
+
+  // 简单大小写折叠：先转大写再转小写，使 "ſ"、"K"（开尔文符号）等与普通字母归为一类
+  private static String foldCase(String s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    s.codePoints().forEach(cp -> sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp))));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,20 @@
+-- 关键词举报改为批量 upsert（INSERT ... ON DUPLICATE KEY UPDATE），content 需要唯一索引
+
+-- 合并已存在的重复关键词：保留 id 最小的一行，累加 rate
+UPDATE accepted_sequences a
+  JOIN (SELECT content, MIN(id) AS keep_id, SUM(rate) AS total, MAX(last_updated_at) AS latest
+        FROM accepted_sequences
+        GROUP BY content
+        HAVING COUNT(*) > 1) d
+    ON a.id = d.keep_id
+   SET a.rate = d.total,
+       a.last_updated_at = d.latest;
+
+DELETE a
+  FROM accepted_sequences a
+  JOIN accepted_sequences b
+    ON a.content = b.content
+   AND a.id > b.id;
+
+ALTER TABLE accepted_sequences
+  ADD UNIQUE INDEX uk_accepted_sequences_content (content);
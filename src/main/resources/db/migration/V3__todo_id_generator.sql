@@ -0,0 +1,12 @@
+-- todo_list 的 ID 改由 id_generators 表分配（Hibernate TableGenerator，pooled-lo 优化器），
+-- Hibernate 一次预留一段 ID，批量插入不再需要每行等待自增 ID 返回
+-- next_val 是下一个可用的 ID；响应式客户端单条插入时也从这里取号，两边不会冲突
+
+CREATE TABLE IF NOT EXISTS id_generators (
+  name     VARCHAR(64) NOT NULL PRIMARY KEY,
+  next_val BIGINT      NOT NULL
+);
+
+INSERT INTO id_generators (name, next_val)
+SELECT 'todo_list', COALESCE(MAX(id), 0) + 1
+  FROM todo_list;
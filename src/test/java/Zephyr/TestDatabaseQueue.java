@@ -0,0 +1,140 @@
+package Zephyr;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDatabaseQueue {
+
+  // 占住唯一的工作线程，直到 latch 被释放
+  private static CountDownLatch block(DatabaseQueue queue) throws InterruptedException {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    queue.submit(() -> {
+      running.countDown();
+      return release.await(5, TimeUnit.SECONDS);
+    }, DatabaseQueue.Priority.HIGH);
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    return release;
+  }
+
+  @Test
+  void testPriorityLanes() throws Exception {
+    DatabaseQueue queue = new DatabaseQueue("test-priority", 1, 10, DatabaseQueue.OverflowPolicy.REJECT, 1, () -> null);
+    CountDownLatch release = block(queue);
+    List<String> order = new CopyOnWriteArrayList<>();
+    CompletableFuture<String> low = queue.submit(() -> add(order, "low"), DatabaseQueue.Priority.LOW);
+    queue.submit(() -> add(order, "normal"), DatabaseQueue.Priority.NORMAL);
+    queue.submit(() -> add(order, "high"), DatabaseQueue.Priority.HIGH);
+    assertEquals(3, queue.depth());
+
+    release.countDown();
+    assertEquals("low", low.get(5, TimeUnit.SECONDS));
+    assertEquals(List.of("high", "normal", "low"), order);
+    queue.shutdown();
+  }
+
+  @Test
+  void testRejectWhenFull() throws Exception {
+    DatabaseQueue queue = new DatabaseQueue("test-reject", 1, 1, DatabaseQueue.OverflowPolicy.REJECT, 1, () -> null);
+    CountDownLatch release = block(queue);
+    CompletableFuture<Integer> accepted = queue.submit(() -> 1, DatabaseQueue.Priority.NORMAL);
+    CompletableFuture<Integer> overflow = queue.submit(() -> 2, DatabaseQueue.Priority.NORMAL);
+
+    ExecutionException e = assertThrows(ExecutionException.class, () -> overflow.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    release.countDown();
+    assertEquals(1, accepted.get(5, TimeUnit.SECONDS));
+    assertEquals(1, queue.metrics().getLong("rejected"));
+    queue.shutdown();
+  }
+
+  @Test
+  void testDropOldest() throws Exception {
+    DatabaseQueue queue = new DatabaseQueue("test-drop", 1, 1, DatabaseQueue.OverflowPolicy.DROP_OLDEST, 1, () -> null);
+    CountDownLatch release = block(queue);
+    CompletableFuture<Integer> oldest = queue.submit(() -> 1, DatabaseQueue.Priority.LOW);
+    CompletableFuture<Integer> newer = queue.submit(() -> 2, DatabaseQueue.Priority.NORMAL);
+
+    release.countDown();
+    assertEquals(2, newer.get(5, TimeUnit.SECONDS));
+    assertTrue(oldest.isCompletedExceptionally());
+    queue.shutdown();
+  }
+
+  @Test
+  void testStatementsAreBatched() throws Exception {
+    List<String> executed = new CopyOnWriteArrayList<>();
+    DatabaseQueue queue = new DatabaseQueue("test-batch", 1, 100, DatabaseQueue.OverflowPolicy.REJECT, 50,
+      () -> fakeDataSource(executed));
+    CountDownLatch release = block(queue);
+    String insert = "INSERT INTO t (a) VALUES (?)";
+    String update = "UPDATE t SET a = ?";
+    CompletableFuture<Integer> first = queue.submitStatement(insert, new Object[]{1}, DatabaseQueue.Priority.NORMAL);
+    queue.submitStatement(insert, new Object[]{2}, DatabaseQueue.Priority.NORMAL);
+    queue.submitStatement(update, new Object[]{0}, DatabaseQueue.Priority.NORMAL);
+    queue.submitStatement(insert, new Object[]{3}, DatabaseQueue.Priority.NORMAL);
+    CompletableFuture<Integer> last = queue.submitStatement(insert, new Object[]{4}, DatabaseQueue.Priority.LOW);
+
+    release.countDown();
+    assertEquals(1, first.get(5, TimeUnit.SECONDS));
+    assertEquals(1, last.get(5, TimeUnit.SECONDS));
+    queue.shutdown();
+    assertTrue(queue.awaitTermination(5, TimeUnit.SECONDS));
+    // 只合并队头连续的相同语句，UPDATE 之后的 INSERT 不会被提前
+    assertEquals(List.of(insert + " x2", update + " x1", insert + " x1", insert + " x1"), executed);
+    assertEquals(1, queue.metrics().getLong("batches"));
+    assertEquals(2, queue.metrics().getLong("batchedStatements"));
+  }
+
+  private static String add(List<String> order, String value) {
+    order.add(value);
+    return value;
+  }
+
+  // 只按执行顺序记录每次 executeBatch 的 SQL 和批大小的 DataSource
+  private static DataSource fakeDataSource(List<String> executed) {
+    Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+      new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+        case "prepareStatement" -> fakeStatement((String) args[0], executed);
+        case "getAutoCommit", "isClosed" -> false;
+        default -> null;
+      });
+    return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+      new Class<?>[]{DataSource.class}, (proxy, method, args) ->
+        "getConnection".equals(method.getName()) ? connection : null);
+  }
+
+  private static PreparedStatement fakeStatement(String sql, List<String> executed) {
+    int[] pending = {0};
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+      new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+        case "addBatch" -> {
+          pending[0]++;
+          yield null;
+        }
+        case "executeBatch" -> {
+          executed.add(sql + " x" + pending[0]);
+          int[] counts = new int[pending[0]];
+          Arrays.fill(counts, 1);
+          pending[0] = 0;
+          yield counts;
+        }
+        case "executeUpdate" -> 1;
+        default -> null;
+      });
+  }
+}
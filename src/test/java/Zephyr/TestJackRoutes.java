@@ -58,6 +58,26 @@ public class TestJackRoutes {
             .onFailure(testContext::failNow); // 处理请求失败
   }
 
+  @Test
+  void testAnalyzeStream(Vertx vertx, VertxTestContext testContext) {
+    // 构造只包含一个 txt 文件的 multipart 请求体
+    String boundary = "zephyr-test-boundary";
+    Buffer body = Buffer.buffer()
+      .appendString("--" + boundary + "\r\n")
+      .appendString("Content-Disposition: form-data; name=\"file\"; filename=\"sample.txt\"\r\n")
+      .appendString("Content-Type: text/plain\r\n\r\n")
+      .appendString("hello\nworld\n")
+      .appendString("\r\n--" + boundary + "--\r\n");
+    // 创建 HTTP 客户端并发送 POST 请求到 "/api/jack/analyze/text/uploads?mode=stream"
+    vertx.createHttpClient()
+            .request(io.vertx.core.http.HttpMethod.POST, 8888, "127.0.0.1", "/api/jack/analyze/text/uploads?mode=stream")
+            .compose(req -> req
+              .putHeader("Content-Type", "multipart/form-data; boundary=" + boundary)
+              .send(body)) // 发送请求
+            .onSuccess(resp -> handleStream(resp, testContext)) // 处理成功响应
+            .onFailure(testContext::failNow); // 处理请求失败
+  }
+
   @Test
   void testSubmit(Vertx vertx, VertxTestContext testContext) {
     // 构造测试请求体
@@ -170,6 +190,37 @@ public class TestJackRoutes {
     });
   }
 
+  private void handleStream(HttpClientResponse resp, VertxTestContext testContext) {
+    testContext.verify(() -> {
+      // 验证 HTTP 状态码
+      assertEquals(200, resp.statusCode(), "HTTP status code should be 200");
+
+      // 读取响应体
+      resp.body()
+        .onSuccess(buffer -> handleStreamBody(buffer, testContext)) // 处理响应体
+        .onFailure(testContext::failNow); // 如果 body() 失败
+    });
+  }
+
+  private void handleStreamBody(Buffer body, VertxTestContext testContext) {
+    testContext.verify(() -> {
+      // 将响应体解析为 JSON 对象
+      JsonObject responseJson = body.toJsonObject();
+
+      // should be {"file":"sample.txt","result":(alarmed or unalarmed),"score":0,"lines":2,"status":"uploaded","timestamp":1736972790315}
+      // 验证响应内容
+      assertEquals("uploaded", responseJson.getString("status"), "Status should be 'uploaded'");
+      assertEquals("sample.txt", responseJson.getString("file"), "File should be 'sample.txt'");
+      assertNotNull(responseJson.getString("result"), "Result should not be null");
+      assertEquals(2, responseJson.getInteger("lines"), "Lines should be 2");
+      // 验证时间戳是否存在
+      assertNotNull(responseJson.getLong("timestamp"), "Timestamp should not be null");
+
+      // 标记测试完成
+      testContext.completeNow();
+    });
+  }
+
   private void handleSubmit(HttpClientResponse resp, VertxTestContext testContext) {
     testContext.verify(() -> {
         // 验证 HTTP 状态码
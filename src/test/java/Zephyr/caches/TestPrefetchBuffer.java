@@ -0,0 +1,89 @@
+package Zephyr.caches;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPrefetchBuffer {
+
+  private Vertx vertx;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  void testFillsAndRefillsAtLowWater() {
+    AtomicInteger counter = new AtomicInteger();
+    PrefetchBuffer<Integer> buffer = new PrefetchBuffer<>(vertx, "test-fill", 4, 1, 2,
+      () -> Future.succeededFuture(counter.getAndIncrement()));
+    assertEquals(4, buffer.metrics().getInteger("size"));
+
+    assertEquals(0, buffer.take().result());
+    assertEquals(1, buffer.take().result());
+    // 高于低水位时不补充
+    assertEquals(4, counter.get());
+    assertEquals(2, buffer.take().result());
+    // 剩余 1 个，补充到满
+    assertEquals(7, counter.get());
+    assertEquals(3, buffer.take().result());
+    assertEquals(3, buffer.metrics().getInteger("size"));
+    assertEquals(0, buffer.metrics().getLong("misses"));
+  }
+
+  @Test
+  void testBoundedConcurrencyAndDirectFetch() {
+    List<Promise<String>> pending = new ArrayList<>();
+    PrefetchBuffer<String> buffer = new PrefetchBuffer<>(vertx, "test-concurrency", 8, 2, 2, () -> {
+      Promise<String> promise = Promise.promise();
+      pending.add(promise);
+      return promise.future();
+    });
+    assertEquals(2, pending.size());
+
+    // 缓冲区为空时直接请求上游
+    Future<String> direct = buffer.take();
+    assertFalse(direct.isComplete());
+    assertEquals(3, pending.size());
+    assertEquals(1, buffer.metrics().getLong("misses"));
+
+    // 一个请求完成后才开始下一个
+    pending.get(0).complete("a");
+    assertEquals(4, pending.size());
+    assertEquals(1, buffer.metrics().getInteger("size"));
+    assertEquals("a", buffer.take().result());
+
+    pending.get(2).complete("direct");
+    assertEquals("direct", direct.result());
+  }
+
+  @Test
+  void testBacksOffAfterFailure() {
+    AtomicInteger calls = new AtomicInteger();
+    PrefetchBuffer<String> buffer = new PrefetchBuffer<>(vertx, "test-backoff", 4, 1, 1, () -> {
+      calls.incrementAndGet();
+      return Future.failedFuture("upstream down");
+    });
+    assertEquals(1, calls.get());
+    assertEquals(1, buffer.metrics().getLong("fetchFailures"));
+
+    // 退避期间只有直接请求访问上游
+    assertTrue(buffer.take().failed());
+    assertEquals(2, calls.get());
+  }
+}
@@ -0,0 +1,215 @@
+package Zephyr.caches;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRefreshingCache {
+
+  private Vertx vertx;
+  private MemoryStore store;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    store = new MemoryStore();
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close();
+  }
+
+  private RefreshingCache cache(String namespace) {
+    return new RefreshingCache(vertx, namespace, Duration.ofSeconds(1), Duration.ofHours(1), Duration.ofHours(1),
+      store, 5000);
+  }
+
+  // 写入一个指定时间之前加载的条目
+  private void seed(String key, String value, String error, long ageMs) {
+    store.values.put(key, new JsonObject().put("v", value).put("e", error)
+      .put("at", System.currentTimeMillis() - ageMs).encode());
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void testConcurrentMissesShareOneLoad() throws Exception {
+    RefreshingCache cache = cache("test-coalesce");
+    AtomicInteger loads = new AtomicInteger();
+    Promise<String> upstream = Promise.promise();
+    Future<RefreshingCache.Result> first = cache.get("k", () -> {
+      loads.incrementAndGet();
+      return upstream.future();
+    });
+    Future<RefreshingCache.Result> second = cache.get("k", () -> {
+      loads.incrementAndGet();
+      return Future.succeededFuture("other");
+    });
+    upstream.complete("v");
+
+    assertEquals("v", await(first).value());
+    assertEquals("v", await(second).value());
+    assertEquals(RefreshingCache.Status.MISS, await(first).status());
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.metrics().getLong("coalesced"));
+    // 加载完成后释放自己的锁
+    assertTrue(store.locks.isEmpty());
+  }
+
+  @Test
+  void testStaleServedWithSingleRefresh() throws Exception {
+    RefreshingCache cache = cache("test-stale");
+    seed("k", "old", null, 2000);
+    AtomicInteger loads = new AtomicInteger();
+    Promise<String> upstream = Promise.promise();
+
+    RefreshingCache.Result first = await(cache.get("k", () -> {
+      loads.incrementAndGet();
+      return upstream.future();
+    }));
+    RefreshingCache.Result second = await(cache.get("k", () -> {
+      loads.incrementAndGet();
+      return upstream.future();
+    }));
+    assertEquals(RefreshingCache.Status.STALE, first.status());
+    assertEquals("old", second.value());
+    assertEquals(1, loads.get());
+
+    upstream.complete("new");
+    RefreshingCache.Result refreshed = await(cache.get("k", () -> Future.failedFuture("not called")));
+    assertEquals(RefreshingCache.Status.HIT, refreshed.status());
+    assertEquals("new", refreshed.value());
+  }
+
+  @Test
+  void testFailedRefreshKeepsStaleValue() throws Exception {
+    RefreshingCache cache = cache("test-stale-failure");
+    seed("k", "old", null, 2000);
+    AtomicInteger loads = new AtomicInteger();
+
+    RefreshingCache.Result first = await(cache.get("k", () -> {
+      loads.incrementAndGet();
+      return Future.failedFuture("upstream down");
+    }));
+    assertEquals("old", first.value());
+    assertEquals(1, cache.metrics().getLong("loadFailures"));
+
+    // 失败结果没有覆盖旧值，下一次请求仍返回旧值并再次尝试刷新
+    RefreshingCache.Result second = await(cache.get("k", () -> {
+      loads.incrementAndGet();
+      return Future.failedFuture("upstream down");
+    }));
+    assertEquals(RefreshingCache.Status.STALE, second.status());
+    assertEquals("old", second.value());
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void testNegativeCacheWindow() throws Exception {
+    RefreshingCache cache = cache("test-negative");
+    AtomicInteger loads = new AtomicInteger();
+
+    ExecutionException e = assertThrows(ExecutionException.class, () -> await(cache.get("k", () -> {
+      loads.incrementAndGet();
+      return Future.failedFuture("upstream down");
+    })));
+    RefreshingCache.LoadFailedException failure =
+      assertInstanceOf(RefreshingCache.LoadFailedException.class, e.getCause());
+    assertFalse(failure.isNegativeHit());
+
+    // 负缓存期间不访问上游
+    e = assertThrows(ExecutionException.class, () -> await(cache.get("k", () -> {
+      loads.incrementAndGet();
+      return Future.succeededFuture("v");
+    })));
+    failure = assertInstanceOf(RefreshingCache.LoadFailedException.class, e.getCause());
+    assertTrue(failure.isNegativeHit());
+    assertTrue(failure.getRetryAfterMs() > 0 && failure.getRetryAfterMs() <= Duration.ofHours(1).toMillis());
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.metrics().getLong("negativeHits"));
+
+    // 超过负缓存时长后重新加载
+    RefreshingCache shortNegative = new RefreshingCache(vertx, "test-negative-expired", Duration.ofSeconds(1),
+      Duration.ofHours(1), Duration.ofMillis(100), store, 5000);
+    seed("expired", null, "upstream down", 200);
+    assertEquals("v", await(shortNegative.get("expired", () -> Future.succeededFuture("v"))).value());
+  }
+
+  @Test
+  void testLoadsImmediatelyWhenLockUnavailable() throws Exception {
+    RefreshingCache cache = cache("test-lock-unavailable");
+    store.lockAvailable = false;
+    long start = System.currentTimeMillis();
+    assertEquals("v", await(cache.get("k", () -> Future.succeededFuture("v"))).value());
+    assertTrue(System.currentTimeMillis() - start < 1000);
+    assertEquals(0, cache.metrics().getLong("lockWaits"));
+  }
+
+  @Test
+  void testWaitsForOtherNodeHoldingLock() throws Exception {
+    RefreshingCache cache = cache("test-lock-held");
+    store.locks.put("zephyr:lock:test-lock-held:k", "other-node");
+    vertx.setTimer(150, id -> seed("k", "from-other", null, 0));
+
+    AtomicInteger loads = new AtomicInteger();
+    RefreshingCache.Result result = await(cache.get("k", () -> {
+      loads.incrementAndGet();
+      return Future.succeededFuture("v");
+    }));
+    assertEquals("from-other", result.value());
+    assertEquals(0, loads.get());
+    // 其他实例的锁不会被释放
+    assertEquals("other-node", store.locks.get("zephyr:lock:test-lock-held:k"));
+  }
+
+  private static class MemoryStore implements RefreshingCache.Store {
+
+    final Map<String, String> values = new ConcurrentHashMap<>();
+    final Map<String, String> locks = new ConcurrentHashMap<>();
+    volatile boolean lockAvailable = true;
+
+    @Override
+    public String getLocal(String key) {
+      return null;
+    }
+
+    @Override
+    public Future<String> get(String key) {
+      return Future.succeededFuture(values.get(key));
+    }
+
+    @Override
+    public void put(String key, String value) {
+      values.put(key, value);
+    }
+
+    @Override
+    public Future<Boolean> tryLock(String lockKey, String owner, long ttlMillis) {
+      if (!lockAvailable) {
+        return Future.failedFuture("connection refused");
+      }
+      return Future.succeededFuture(locks.putIfAbsent(lockKey, owner) == null);
+    }
+
+    @Override
+    public void unlock(String lockKey, String owner) {
+      locks.remove(lockKey, owner);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package Zephyr.caches;
+
+import io.valkey.StreamEntryID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStreamQueue {
+
+  private final TaskCodec codec = new TaskCodec(TaskCodec.Format.SMILE, 1024);
+  private final List<StreamQueue> queues = new ArrayList<>();
+  private MemoryStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = new MemoryStore();
+  }
+
+  @AfterEach
+  void tearDown() {
+    queues.forEach(StreamQueue::stop);
+  }
+
+  private StreamQueue queue(String name, long claimIdleMs, int maxAttempts) {
+    StreamQueue queue = new StreamQueue(name, "test-consumer", 2, 10, 20, claimIdleMs, 1000, maxAttempts, codec, store);
+    queues.add(queue);
+    return queue;
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+      Thread.sleep(10);
+    }
+  }
+
+  private static String attempt(ValKeyManager.StreamMessage message) {
+    return new String(message.fields().get("attempt"), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testDispatchesAndAcks() throws Exception {
+    StreamQueue queue = queue("test-dispatch", 60000, 5);
+    Set<String> handled = ConcurrentHashMap.newKeySet();
+    queue.publish(new Tasks("a", "1"));
+    queue.publish(new Tasks("b", "2"));
+    queue.publish(new Tasks("c", "3"));
+    queue.start(task -> handled.add(task.getKey() + "=" + task.getValue()));
+
+    await(() -> store.acked.size() == 3);
+    assertEquals(Set.of("a=1", "b=2", "c=3"), handled);
+    assertTrue(store.pending.isEmpty());
+    assertEquals(3, queue.metrics().getLong("processed"));
+    assertEquals(3, queue.metrics().getLong("published"));
+  }
+
+  @Test
+  void testRequeuesFailedTask() throws Exception {
+    StreamQueue queue = queue("test-requeue", 60000, 5);
+    AtomicInteger calls = new AtomicInteger();
+    queue.publish(new Tasks("flaky", "v"));
+    queue.start(task -> {
+      if (calls.incrementAndGet() == 1) {
+        throw new IllegalStateException("first attempt fails");
+      }
+    });
+
+    await(() -> store.acked.size() == 2);
+    List<ValKeyManager.StreamMessage> stream = store.stream("zephyr:stream:test-requeue");
+    // 失败的消息确认后带着重试次数重新追加
+    assertEquals(2, stream.size());
+    assertEquals("1", attempt(stream.get(1)));
+    assertEquals(2, calls.get());
+    assertEquals(1, queue.metrics().getLong("failed"));
+    assertEquals(1, queue.metrics().getLong("processed"));
+    assertTrue(store.stream("zephyr:stream:test-requeue:dead").isEmpty());
+  }
+
+  @Test
+  void testDeadLettersAfterMaxAttempts() throws Exception {
+    StreamQueue queue = queue("test-dead", 60000, 2);
+    queue.publish(new Tasks("poison", "v"));
+    queue.start(task -> {
+      throw new IllegalStateException("always fails");
+    });
+
+    await(() -> queue.metrics().getLong("deadLettered") == 1);
+    List<ValKeyManager.StreamMessage> dead = store.stream("zephyr:stream:test-dead:dead");
+    assertEquals(1, dead.size());
+    assertEquals("2", attempt(dead.get(0)));
+    assertEquals("poison", TaskCodec.decode(dead.get(0).fields().get("task")).getKey());
+    await(() -> store.acked.size() == 2);
+    assertEquals(2, queue.metrics().getLong("failed"));
+  }
+
+  @Test
+  void testUndecodableGoesToDeadLetter() throws Exception {
+    StreamQueue queue = queue("test-undecodable", 60000, 5);
+    AtomicInteger calls = new AtomicInteger();
+    store.xadd("zephyr:stream:test-undecodable",
+      Map.of("task", "not a task".getBytes(StandardCharsets.UTF_8), "attempt", "0".getBytes(StandardCharsets.UTF_8)), 1000);
+    queue.start(task -> calls.incrementAndGet());
+
+    await(() -> store.acked.size() == 1);
+    List<ValKeyManager.StreamMessage> dead = store.stream("zephyr:stream:test-undecodable:dead");
+    assertEquals(1, dead.size());
+    assertArrayEquals("not a task".getBytes(StandardCharsets.UTF_8), dead.get(0).fields().get("task"));
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  void testReclaimedInFlightMessageRunsOnce() throws Exception {
+    StreamQueue queue = queue("test-in-flight", 60, 5);
+    // 模拟心跳赶不上，正在处理的消息被 XAUTOCLAIM 认领回本实例
+    store.heartbeats = false;
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    queue.publish(new Tasks("slow", "v"));
+    queue.start(task -> {
+      calls.incrementAndGet();
+      release.await(5, TimeUnit.SECONDS);
+    });
+
+    await(() -> queue.metrics().getLong("claimed") >= 2);
+    release.countDown();
+    await(() -> store.acked.size() == 1);
+    assertEquals(1, calls.get());
+    assertEquals(1, queue.metrics().getLong("processed"));
+  }
+
+  @Test
+  void testHeartbeatKeepsLongTaskClaimed() throws Exception {
+    StreamQueue queue = queue("test-heartbeat", 150, 5);
+    CountDownLatch release = new CountDownLatch(1);
+    queue.publish(new Tasks("slow", "v"));
+    queue.start(task -> release.await(5, TimeUnit.SECONDS));
+
+    // 处理时间超过认领阈值，心跳让消息一直保持在本实例
+    await(() -> store.heartbeatsSent.get() >= 3);
+    release.countDown();
+    await(() -> store.acked.size() == 1);
+    assertEquals(0, queue.metrics().getLong("claimed"));
+  }
+
+  // 单个消费者组的内存流
+  private static class MemoryStore implements StreamQueue.Store {
+
+    final Map<String, List<ValKeyManager.StreamMessage>> streams = new ConcurrentHashMap<>();
+    // 已投递未确认的消息 -> 最近一次投递或认领的时间
+    final Map<StreamEntryID, Long> pending = new ConcurrentHashMap<>();
+    final Set<StreamEntryID> acked = ConcurrentHashMap.newKeySet();
+    final AtomicInteger heartbeatsSent = new AtomicInteger();
+    final Map<String, Integer> cursors = new ConcurrentHashMap<>();
+    volatile boolean heartbeats = true;
+    private long sequence;
+
+    synchronized List<ValKeyManager.StreamMessage> stream(String key) {
+      return new ArrayList<>(streams.getOrDefault(key, List.of()));
+    }
+
+    @Override
+    public synchronized StreamEntryID xadd(String key, Map<String, byte[]> fields, long maxLen) {
+      StreamEntryID id = new StreamEntryID(++sequence, 0);
+      streams.computeIfAbsent(key, k -> new ArrayList<>()).add(new ValKeyManager.StreamMessage(id, new LinkedHashMap<>(fields)));
+      notifyAll();
+      return id;
+    }
+
+    @Override
+    public void xgroupCreate(String key, String group) {
+    }
+
+    @Override
+    public synchronized List<ValKeyManager.StreamMessage> xreadGroup(String key, String group, String consumer,
+                                                                     int count, int blockMs) {
+      List<ValKeyManager.StreamMessage> stream = streams.getOrDefault(key, List.of());
+      int cursor = cursors.getOrDefault(key, 0);
+      if (cursor == stream.size()) {
+        try {
+          wait(blockMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        stream = streams.getOrDefault(key, List.of());
+      }
+      List<ValKeyManager.StreamMessage> read = new ArrayList<>(stream.subList(cursor, Math.min(stream.size(), cursor + count)));
+      cursors.put(key, cursor + read.size());
+      read.forEach(message -> pending.put(message.id(), System.currentTimeMillis()));
+      return read;
+    }
+
+    @Override
+    public synchronized void xack(String key, String group, StreamEntryID id) {
+      if (pending.remove(id) != null) {
+        acked.add(id);
+      }
+    }
+
+    @Override
+    public synchronized Map.Entry<StreamEntryID, List<ValKeyManager.StreamMessage>> xautoclaim(
+      String key, String group, String consumer, long minIdleMs, StreamEntryID start, int count) {
+      long now = System.currentTimeMillis();
+      List<ValKeyManager.StreamMessage> claimed = new ArrayList<>();
+      for (ValKeyManager.StreamMessage message : streams.getOrDefault(key, List.of())) {
+        Long deliveredAt = pending.get(message.id());
+        if (claimed.size() < count && deliveredAt != null && now - deliveredAt >= minIdleMs) {
+          pending.put(message.id(), now);
+          claimed.add(message);
+        }
+      }
+      // 每次都扫描完整个待处理列表
+      return Map.entry(new StreamEntryID(), claimed);
+    }
+
+    @Override
+    public synchronized void xclaimJustId(String key, String group, String consumer, StreamEntryID... ids) {
+      heartbeatsSent.incrementAndGet();
+      if (heartbeats) {
+        long now = System.currentTimeMillis();
+        for (StreamEntryID id : ids) {
+          pending.computeIfPresent(id, (k, v) -> now);
+        }
+      }
+    }
+  }
+}
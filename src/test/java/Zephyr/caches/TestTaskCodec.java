@@ -0,0 +1,79 @@
+package Zephyr.caches;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTaskCodec {
+
+  private static Tasks sampleTask(int entries) {
+    Map<String, Object> value = new LinkedHashMap<>();
+    for (int i = 0; i < entries; i++) {
+      value.put("field" + i, i % 2 == 0 ? "value-" + i : i);
+    }
+    return new Tasks("zephyr:test:" + entries, value);
+  }
+
+  @Test
+  void testRoundTripAllFormats() {
+    Tasks task = sampleTask(8);
+    for (TaskCodec.Format format : TaskCodec.Format.values()) {
+      byte[] encoded = new TaskCodec(format, -1).encode(task);
+      Tasks decoded = TaskCodec.decode(encoded);
+      assertEquals(task.getKey(), decoded.getKey(), format.name());
+      assertEquals(task.getValue(), decoded.getValue(), format.name());
+      assertEquals(task.getTimestamp(), decoded.getTimestamp(), format.name());
+    }
+  }
+
+  @Test
+  void testCompressionAboveThreshold() {
+    Tasks task = sampleTask(512);
+    byte[] plain = new TaskCodec(TaskCodec.Format.SMILE, -1).encode(task);
+    byte[] compressed = new TaskCodec(TaskCodec.Format.SMILE, 1024).encode(task);
+    assertTrue(compressed.length < plain.length);
+    assertEquals(task.getValue(), TaskCodec.decode(compressed).getValue());
+
+    // 小于阈值时不压缩
+    Tasks small = sampleTask(2);
+    assertArrayEquals(new TaskCodec(TaskCodec.Format.CBOR, -1).encode(small),
+      new TaskCodec(TaskCodec.Format.CBOR, 1024).encode(small));
+  }
+
+  @Test
+  void testReadsLegacyJson() {
+    Tasks task = sampleTask(4);
+    byte[] legacy = task.toJson().getBytes(StandardCharsets.UTF_8);
+    Tasks decoded = TaskCodec.decode(legacy);
+    assertEquals(task.getKey(), decoded.getKey());
+    assertEquals(task.getValue(), decoded.getValue());
+  }
+
+  @Test
+  void testRejectsCorruptCompressedData() {
+    byte[] compressed = new TaskCodec(TaskCodec.Format.SMILE, 0).encode(sampleTask(64));
+    assertEquals(1, compressed[3]);
+
+    // 头中的原始长度为负数或超过上限时不分配内存
+    byte[] negative = compressed.clone();
+    ByteBuffer.wrap(negative, 4, 4).putInt(-1);
+    assertThrows(IllegalStateException.class, () -> TaskCodec.decode(negative));
+    byte[] huge = compressed.clone();
+    ByteBuffer.wrap(huge, 4, 4).putInt(Integer.MAX_VALUE);
+    assertThrows(IllegalStateException.class, () -> TaskCodec.decode(huge, 1024 * 1024));
+
+    // 损坏的 LZ4 数据同样以 IllegalStateException 失败
+    byte[] garbage = compressed.clone();
+    for (int i = 8; i < garbage.length; i++) {
+      garbage[i] = (byte) 0xFF;
+    }
+    assertThrows(IllegalStateException.class, () -> TaskCodec.decode(garbage));
+    assertThrows(IllegalStateException.class, () -> TaskCodec.decode(Arrays.copyOf(compressed, 6)));
+  }
+}
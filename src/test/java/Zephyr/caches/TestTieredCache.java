@@ -0,0 +1,65 @@
+package Zephyr.caches;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTieredCache {
+
+  private static final String OTHER_NODE = "other-node";
+
+  private static TieredCache cache(String namespace) {
+    TieredCache cache = TieredCache.register(namespace, 60, 100, 60);
+    cache.putLocal("a", "1");
+    cache.putLocal("b", "2");
+    cache.putLocal("c", "3");
+    return cache;
+  }
+
+  @Test
+  void testIgnoresOwnMessages() {
+    TieredCache cache = cache("test-own");
+    TieredCache.onInvalidation(TieredCache.NODE_ID + "|test-own|a");
+    assertEquals("1", cache.getLocal("a"));
+    assertEquals(0, cache.metrics().getLong("remoteInvalidations"));
+  }
+
+  @Test
+  void testSingleKey() {
+    TieredCache cache = cache("test-single");
+    TieredCache.onInvalidation(OTHER_NODE + "|test-single|a");
+    assertNull(cache.getLocal("a"));
+    assertEquals("2", cache.getLocal("b"));
+    assertEquals(1, cache.metrics().getLong("remoteInvalidations"));
+  }
+
+  @Test
+  void testMultipleKeys() {
+    TieredCache cache = cache("test-multi");
+    TieredCache.onInvalidation(OTHER_NODE + "|test-multi|a\nc");
+    assertNull(cache.getLocal("a"));
+    assertEquals("2", cache.getLocal("b"));
+    assertNull(cache.getLocal("c"));
+  }
+
+  @Test
+  void testWholeNamespace() {
+    TieredCache cache = cache("test-all");
+    TieredCache other = cache("test-untouched");
+    TieredCache.onInvalidation(OTHER_NODE + "|test-all|*");
+    assertNull(cache.getLocal("a"));
+    assertNull(cache.getLocal("b"));
+    // 其他命名空间不受影响
+    assertEquals("1", other.getLocal("a"));
+  }
+
+  @Test
+  void testIgnoresMalformedAndUnknown() {
+    TieredCache cache = cache("test-malformed");
+    TieredCache.onInvalidation("no-separators");
+    TieredCache.onInvalidation(OTHER_NODE + "|test-malformed");
+    TieredCache.onInvalidation(OTHER_NODE + "|unknown-namespace|a");
+    assertEquals("1", cache.getLocal("a"));
+    assertEquals(0, cache.metrics().getLong("remoteInvalidations"));
+  }
+}
@@ -0,0 +1,133 @@
+package Zephyr.scanners;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestKeywordMatcher {
+
+  // 旧版 processFile 的逐行嵌套循环，作为计分基准
+  private static int[] naiveScan(Map<String, Integer> keywords, String text) throws IOException {
+    int res = 0;
+    int lines = 0;
+    BufferedReader br = new BufferedReader(new StringReader(text));
+    String line;
+    while ((line = br.readLine()) != null) {
+      for (Map.Entry<String, Integer> entry : keywords.entrySet()) {
+        if (line.contains(entry.getKey())) {
+          res += entry.getValue();
+        }
+      }
+      lines++;
+    }
+    return new int[]{res, lines};
+  }
+
+  @Test
+  void testOverlappingKeywords() {
+    Map<String, Integer> keywords = new LinkedHashMap<>();
+    keywords.put("he", 1);
+    keywords.put("she", 2);
+    keywords.put("his", 4);
+    keywords.put("hers", 8);
+    KeywordMatcher matcher = KeywordMatcher.build(keywords);
+
+    // "ushers" 同时包含 she、he、hers
+    assertArrayEquals(new int[]{11, 1}, matcher.scan("ushers"));
+    // 同一行重复出现只计一次
+    assertArrayEquals(new int[]{1, 1}, matcher.scan("he he he"));
+    // 跨行不会拼接成关键词
+    assertArrayEquals(new int[]{0, 2}, matcher.scan("ush\ners"));
+    assertEquals(4, matcher.size());
+  }
+
+  @Test
+  void testChineseKeywords() {
+    Map<String, Integer> keywords = new LinkedHashMap<>();
+    keywords.put("转账", 5);
+    keywords.put("安全账户", 10);
+    KeywordMatcher matcher = KeywordMatcher.build(keywords);
+
+    assertArrayEquals(new int[]{15, 2}, matcher.scan("请立即转账到安全账户\n谢谢"));
+  }
+
+  @Test
+  void testLineCounting() {
+    KeywordMatcher matcher = KeywordMatcher.build(Map.of("a", 1));
+
+    assertArrayEquals(new int[]{0, 0}, matcher.scan(""));
+    assertArrayEquals(new int[]{0, 1}, matcher.scan("\n"));
+    assertArrayEquals(new int[]{2, 3}, matcher.scan("a\r\nb\ra"));
+    assertArrayEquals(new int[]{1, 1}, matcher.scan("a\n"));
+  }
+
+  @Test
+  void testChunkedFeedKeepsState() {
+    KeywordMatcher matcher = KeywordMatcher.build(Map.of("abcdef", 3));
+    KeywordMatcher.Session session = matcher.newSession();
+    session.feed("xxab");
+    session.feed("cd");
+    session.feed("efyy");
+
+    assertArrayEquals(new int[]{3, 1}, session.finish());
+  }
+
+  @Test
+  void testMatchesNaiveScan() throws IOException {
+    Random random = new Random(42);
+    String alphabet = "abc转账\n";
+    for (int round = 0; round < 200; round++) {
+      Map<String, Integer> keywords = new LinkedHashMap<>();
+      for (int i = 0; i < 1 + random.nextInt(20); i++) {
+        keywords.put(randomText(random, "abc转账", 1 + random.nextInt(4)), 1 + random.nextInt(5));
+      }
+      String text = randomText(random, alphabet, random.nextInt(200));
+
+      assertArrayEquals(naiveScan(keywords, text), KeywordMatcher.build(keywords).scan(text), text);
+    }
+  }
+
+  private static String randomText(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+
+  @Test
+  void testNormalizedMatching() {
+    Map<String, Integer> keywords = new LinkedHashMap<>();
+    keywords.put("ＶＩＰ账户", 5);
+    keywords.put("file", 3);
+    KeywordMatcher matcher = KeywordMatcher.build(keywords, true);
+
+    // 全角/半角、大小写不同的写法都能命中
+    assertArrayEquals(new int[]{15, 3}, matcher.scan("vip账户\nＶｉｐ账户\nVIP账户"));
+    // 兼容字符展开："ﬁ" -> "fi"
+    assertArrayEquals(new int[]{3, 1}, matcher.scan("ＦＩＬＥ and ﬁle"));
+    // 精确模式不做归一化
+    assertArrayEquals(new int[]{0, 1}, KeywordMatcher.build(keywords).scan("vip账户"));
+  }
+
+  @Test
+  void testUtf8Bytes() {
+    KeywordMatcher matcher = KeywordMatcher.build(Map.of("安全账户", 10, "ok", 1), true);
+    byte[] bytes = "转到安全账户\r\nOK\n".getBytes(StandardCharsets.UTF_8);
+    KeywordMatcher.Session session = matcher.newSession();
+    // 逐字节送入，多字节字符被拆开
+    for (byte b : bytes) {
+      session.feed(b);
+    }
+    assertArrayEquals(new int[]{11, 2}, session.finish());
+    assertArrayEquals(new int[]{11, 2}, matcher.scan(new String(bytes, StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,44 @@
+package Zephyr.scanners;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestParallelFileScanner {
+
+  @Test
+  void testChunkedScanMatchesSingleScan(@TempDir Path dir) throws IOException {
+    KeywordMatcher matcher = KeywordMatcher.build(Map.of("转账", 7, "ab", 1, "安全账户", 20));
+    Random random = new Random(7);
+    String[] words = {"转账", "ab", "安全", "账户", "x", "\n", "\r\n", "\r"};
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      text.append(words[random.nextInt(words.length)]);
+    }
+    Path file = dir.resolve("large.txt");
+    Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+    // 块很小，强制切出大量分块
+    ParallelFileScanner scanner = new ParallelFileScanner(new ForkJoinPool(4), 512);
+
+    assertArrayEquals(matcher.scan(text), scanner.scan(file, matcher));
+    assertArrayEquals(matcher.scan(text), scanner.scanAsync(file, matcher).join());
+  }
+
+  @Test
+  void testEmptyFile(@TempDir Path dir) throws IOException {
+    Path file = Files.createFile(dir.resolve("empty.txt"));
+    ParallelFileScanner scanner = new ParallelFileScanner(2);
+
+    assertArrayEquals(new int[]{0, 0}, scanner.scan(file, KeywordMatcher.build(Map.of("a", 1))));
+  }
+}
@@ -0,0 +1,46 @@
+package Zephyr.scanners;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStreamingScan {
+
+  @Test
+  void testMultiByteCharacterSplitAcrossChunks() {
+    KeywordMatcher matcher = KeywordMatcher.build(Map.of("转账", 10));
+    byte[] bytes = "请转账\n谢谢".getBytes(StandardCharsets.UTF_8);
+
+    // 每个字节单独成块，覆盖所有截断位置
+    StreamingScan scan = new StreamingScan(matcher);
+    for (byte b : bytes) {
+      scan.feed(Buffer.buffer(new byte[]{b}));
+    }
+
+    assertArrayEquals(new int[]{10, 2}, scan.finish());
+    assertEquals(bytes.length, scan.bytes());
+  }
+
+  @Test
+  void testSupplementaryCharacters() {
+    KeywordMatcher matcher = KeywordMatcher.build(Map.of("😀ok", 3));
+    StreamingScan scan = new StreamingScan(matcher);
+    scan.feed(Buffer.buffer("x😀ok", "UTF-8"));
+
+    assertArrayEquals(new int[]{3, 1}, scan.finish());
+  }
+
+  @Test
+  void testMalformedInputIsReplaced() {
+    KeywordMatcher matcher = KeywordMatcher.build(Map.of("ab", 1));
+    StreamingScan scan = new StreamingScan(matcher);
+    // 0xE8 后缺少后续字节，不应吞掉后面的 "ab"
+    scan.feed(Buffer.buffer(new byte[]{(byte) 0xE8, 'a', 'b'}));
+
+    assertArrayEquals(new int[]{1, 1}, scan.finish());
+  }
+}